@@ -0,0 +1,21 @@
+package jobshop.benchmarks;
+
+import jobshop.Instance;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+/** Loads the instances used by the benchmarks (files of the instances/ directory, relative to the project root). */
+final class BenchmarkInstances {
+
+    private BenchmarkInstances() {}
+
+    static Instance load(String name) {
+        try {
+            return Instance.fromFile(Paths.get("instances/" + name));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load instance " + name + " (benchmarks must run from the project root)", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package jobshop.benchmarks;
+
+import jobshop.Instance;
+import jobshop.Schedule;
+import jobshop.encodings.JobNumbers;
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Task;
+import jobshop.solvers.GreedySolver;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Microbenchmarks of the conversions between encodings and of the schedule queries.
+ *
+ * All benchmarks work on the schedule built by the EST_LRPT greedy solver, so that the encodings
+ * are realistic (and identical from one run to the next).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodingBenchmark {
+
+    @Param({"ft10", "la40", "ta50", "ta80"})
+    public String instanceName;
+
+    private Schedule schedule;
+    private JobNumbers jobNumbers;
+    private ResourceOrder resourceOrder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Instance instance = BenchmarkInstances.load(instanceName);
+        schedule = new GreedySolver(PriorityESTRule.EST_LRPT).solve(instance, Long.MAX_VALUE).schedule;
+        jobNumbers = new JobNumbers(schedule);
+        resourceOrder = new ResourceOrder(schedule);
+    }
+
+    @Benchmark
+    public Schedule jobNumbersToSchedule() {
+        return jobNumbers.toSchedule();
+    }
+
+    @Benchmark
+    public Schedule resourceOrderToSchedule() {
+        return resourceOrder.toSchedule();
+    }
+
+    @Benchmark
+    public int jobNumbersMakespan() {
+        return jobNumbers.makespan();
+    }
+
+    @Benchmark
+    public int resourceOrderMakespan() {
+        return resourceOrder.makespan();
+    }
+
+    @Benchmark
+    public ResourceOrder resourceOrderFromSchedule() {
+        return new ResourceOrder(schedule);
+    }
+
+    @Benchmark
+    public List<Task> criticalPath() {
+        return schedule.criticalPath();
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return schedule.isValid();
+    }
+}
@@ -0,0 +1,70 @@
+package jobshop.benchmarks;
+
+import jobshop.Instance;
+import jobshop.encodings.ResourceOrder;
+import jobshop.solvers.CriticalBlocks;
+import jobshop.solvers.DescentSolver;
+import jobshop.solvers.DescentSolver.Swap;
+import jobshop.solvers.GreedySolver;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import jobshop.solvers.SwapEvaluator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Evaluation of the Nowicki and Smutnicki neighborhood of a solution, as done at each step of the
+ * descent and taboo solvers: reset of the evaluator, extraction of the critical blocks, then evaluation
+ * of every swap (exactly, or with the lower bound estimate).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NeighborhoodBenchmark {
+
+    @Param({"ft10", "la40", "ta50", "ta80"})
+    public String instanceName;
+
+    @Param({"EXACT", "ESTIMATE"})
+    public SwapEvaluator.Mode mode;
+
+    private ResourceOrder order;
+    private SwapEvaluator evaluator;
+    private CriticalBlocks blocks;
+    private List<Swap> swaps;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Instance instance = BenchmarkInstances.load(instanceName);
+        order = new ResourceOrder(new GreedySolver(PriorityESTRule.EST_LRPT).solve(instance, Long.MAX_VALUE).schedule);
+        evaluator = new SwapEvaluator(instance, mode);
+        blocks = new CriticalBlocks(instance);
+
+        evaluator.reset(order);
+        evaluator.criticalBlocks(blocks);
+        swaps = new ArrayList<>();
+        DescentSolver descent = new DescentSolver(PriorityESTRule.EST_LRPT);
+        for(int b = 0 ; b < blocks.size() ; b++) {
+            swaps.addAll(descent.neighbors(blocks.block(b)));
+        }
+    }
+
+    /** Heads, tails and critical blocks of the current solution. */
+    @Benchmark
+    public int resetAndExtractBlocks() {
+        evaluator.reset(order);
+        evaluator.criticalBlocks(blocks);
+        return blocks.size();
+    }
+
+    /** Evaluation of all swaps of the neighborhood (the evaluator is reset once, in setup). */
+    @Benchmark
+    public int evaluateNeighborhood() {
+        int best = Integer.MAX_VALUE;
+        for(Swap swap : swaps) {
+            best = Math.min(best, evaluator.evaluate(swap));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,87 @@
+package jobshop.benchmarks;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.Solver;
+import jobshop.solvers.DescentSolver;
+import jobshop.solvers.GraspSolver;
+import jobshop.solvers.GreedySolver;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import jobshop.solvers.Neighborhood;
+import jobshop.solvers.RandomSolver;
+import jobshop.solvers.SwapEvaluator;
+import jobshop.solvers.TabooSolver;
+import jobshop.solvers.TsabSolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Macro benchmarks of the solvers. The amount of work is fixed (no deadline, a fixed number of iterations,
+ * samples or starts) so that the measured time does not depend on a timeout.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class SolverBenchmark {
+
+    @Param({"ft10", "la40", "ta50", "ta80"})
+    public String instanceName;
+
+    private Instance instance;
+
+    private final Solver greedy = new GreedySolver(PriorityESTRule.EST_LRPT);
+    private final Solver descent = new DescentSolver(PriorityESTRule.EST_LRPT);
+    private final Solver taboo = new TabooSolver(PriorityESTRule.EST_LRPT, 10, 1000);
+    private final Solver parallelTaboo = new TabooSolver(PriorityESTRule.EST_LRPT, 10, 1000, SwapEvaluator.Mode.ESTIMATE, 4);
+    private final Solver tsab = new TsabSolver(PriorityESTRule.EST_LRPT, 8, 2000, 5, 1000);
+    private final Solver random = new RandomSolver(1, 0, 10000);
+    private final Solver grasp = new GraspSolver(PriorityESTRule.EST_LRPT, 0.2, 20, 1, 0, Neighborhood.N5);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        instance = BenchmarkInstances.load(instanceName);
+    }
+
+    @Benchmark
+    public Result greedyEstLrpt() {
+        return greedy.solve(instance, Long.MAX_VALUE);
+    }
+
+    /** Descent until a local minimum is reached. */
+    @Benchmark
+    public Result descentEstLrpt() {
+        return descent.solve(instance, Long.MAX_VALUE);
+    }
+
+    /** 1000 iterations of the taboo search. */
+    @Benchmark
+    public Result tabooEstLrpt() {
+        return taboo.solve(instance, Long.MAX_VALUE);
+    }
+
+    /** The same 1000 iterations, the neighborhood being evaluated by 4 threads. */
+    @Benchmark
+    public Result parallelTabooEstLrpt() {
+        return parallelTaboo.solve(instance, Long.MAX_VALUE);
+    }
+
+    /** 1000 iterations of the taboo search with back jumps. */
+    @Benchmark
+    public Result tsabEstLrpt() {
+        return tsab.solve(instance, Long.MAX_VALUE);
+    }
+
+    /** 10000 random job orders. */
+    @Benchmark
+    public Result random() {
+        return random.solve(instance, Long.MAX_VALUE);
+    }
+
+    /** 20 starts of GRASP. */
+    @Benchmark
+    public Result graspEstLrpt() {
+        return grasp.solve(instance, Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,87 @@
+package jobshop;
+
+/** Makespans over time of a local search: one point (elapsed time, iteration, current makespan, best makespan)
+ * per iteration.
+ *
+ * Points are stored in primitive ring buffers of fixed capacity: recording never allocates and, once the buffers
+ * are full, the oldest points are overwritten. The improvements of the whole run remain available in the timeline
+ * of the metrics.
+ */
+public class ConvergenceTrace {
+
+    private final long origin;
+
+    private final long[] elapsedNanos;
+    private final long[] iterations;
+    private final int[] currentMakespans;
+    private final int[] bestMakespans;
+
+    /** Index of the next point to write, and number of points kept. */
+    private int next = 0;
+    private int size = 0;
+
+    public ConvergenceTrace(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("The capacity of a trace must be positive: " + capacity);
+        }
+        this.origin = System.nanoTime();
+        elapsedNanos = new long[capacity];
+        iterations = new long[capacity];
+        currentMakespans = new int[capacity];
+        bestMakespans = new int[capacity];
+    }
+
+    private ConvergenceTrace(ConvergenceTrace other) {
+        this.origin = other.origin;
+        this.elapsedNanos = other.elapsedNanos.clone();
+        this.iterations = other.iterations.clone();
+        this.currentMakespans = other.currentMakespans.clone();
+        this.bestMakespans = other.bestMakespans.clone();
+        this.next = other.next;
+        this.size = other.size;
+    }
+
+    public synchronized void record(long iteration, int currentMakespan, int bestMakespan) {
+        elapsedNanos[next] = System.nanoTime() - origin;
+        iterations[next] = iteration;
+        currentMakespans[next] = currentMakespan;
+        bestMakespans[next] = bestMakespan;
+        next = (next + 1) % elapsedNanos.length;
+        size = Math.min(size + 1, elapsedNanos.length);
+    }
+
+    /** An independent copy of this trace. */
+    public synchronized ConvergenceTrace copy() {
+        return new ConvergenceTrace(this);
+    }
+
+    /** Number of points kept. */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Position in the buffers of the i-th oldest point kept. */
+    private int index(int i) {
+        if(i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("No point " + i + " in a trace of size " + size);
+        }
+        return (next - size + i + elapsedNanos.length) % elapsedNanos.length;
+    }
+
+    /** Time of the i-th point (0 is the oldest point kept), in nanoseconds since the trace was created. */
+    public synchronized long elapsedNanos(int i) {
+        return elapsedNanos[index(i)];
+    }
+
+    public synchronized long iteration(int i) {
+        return iterations[index(i)];
+    }
+
+    public synchronized int currentMakespan(int i) {
+        return currentMakespans[index(i)];
+    }
+
+    public synchronized int bestMakespan(int i) {
+        return bestMakespans[index(i)];
+    }
+}
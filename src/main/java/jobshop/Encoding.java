@@ -9,4 +9,26 @@ public abstract class Encoding {
     }
 
     public abstract Schedule toSchedule();
+
+    /** Value returned by makespan() and decodeInto() when there is no schedule for this encoding. */
+    public static final int INFEASIBLE = Integer.MAX_VALUE;
+
+    /** Makespan of the schedule toSchedule() returns, or INFEASIBLE if it returns null.
+     * Encodings override it to compute the makespan without building the schedule. */
+    public int makespan() {
+        Schedule schedule = toSchedule();
+        return schedule == null ? INFEASIBLE : schedule.makespan();
+    }
+
+    /** Writes the start times of the schedule toSchedule() returns into startTimes (numJobs * numTasks ints, in the
+     * layout of Schedule.wrap()) and returns its makespan, or INFEASIBLE if there is no schedule.
+     * Encodings override it to decode without allocating. */
+    public int decodeInto(int[] startTimes) {
+        Schedule schedule = toSchedule();
+        if(schedule == null) {
+            return INFEASIBLE;
+        }
+        System.arraycopy(schedule.times, 0, startTimes, 0, schedule.times.length);
+        return schedule.makespan();
+    }
 }
@@ -2,12 +2,11 @@ package jobshop;
 
 import jobshop.encodings.Task;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Iterator;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 public class Instance {
 
@@ -23,6 +22,12 @@ public class Instance {
     final int[][] durations;
     final int[][] machines;
 
+    // indexes computed once the durations and machines are known (see buildIndexes())
+    // taskWithMachine[j][m] is the task of job j executed on machine m (-1 if none)
+    private final int[][] taskWithMachine;
+    // remainingTime[j][t] is the sum of the durations of tasks t, t+1, ... of job j
+    private final int[][] remainingTime;
+
     public int duration(int job, int task) {
         return durations[job][task];
     }
@@ -38,11 +43,32 @@ public class Instance {
 
     /** among the tasks of the given job, returns the task index that uses the given machine. */
     public int task_with_machine(int job, int wanted_machine) {
-        for(int task = 0 ; task < numTasks ; task++) {
-            if(machine(job, task) == wanted_machine)
-                return task;
+        int task = taskWithMachine[job][wanted_machine];
+        if(task < 0)
+            throw new RuntimeException("No task targeting machine "+wanted_machine+" on job "+job);
+        return task;
+    }
+
+    /** Total duration of the given task and of all the following tasks of its job. */
+    public int remainingTime(int job, int task) {
+        return remainingTime[job][task];
+    }
+    public int remainingTime(Task t) {
+        return remainingTime(t.job, t.task);
+    }
+
+    // computed on first use, see lowerBound()
+    private volatile LowerBound lowerBound;
+
+    /** Lower bounds on the makespan of any schedule of this instance, computed once. */
+    public LowerBound lowerBound() {
+        LowerBound bound = lowerBound;
+        if(bound == null) {
+            // several threads may compute it at once, they all get the same values
+            bound = LowerBound.of(this);
+            lowerBound = bound;
         }
-        throw new RuntimeException("No task targeting machine "+wanted_machine+" on job "+job);
+        return bound;
     }
 
     Instance(int numJobs, int numTasks) {
@@ -52,28 +78,76 @@ public class Instance {
 
         durations = new int[numJobs][numTasks];
         machines = new int[numJobs][numTasks];
+        taskWithMachine = new int[numJobs][numMachines];
+        remainingTime = new int[numJobs][numTasks + 1];
     }
 
-    /** Parses a instance from a file. */
+    /** Computes the indexes derived from durations and machines, must be called once they are filled. */
+    void buildIndexes() {
+        for(int job = 0 ; job < numJobs ; job++) {
+            Arrays.fill(taskWithMachine[job], -1);
+            for(int task = 0 ; task < numTasks ; task++) {
+                taskWithMachine[job][machines[job][task]] = task;
+            }
+            remainingTime[job][numTasks] = 0;
+            for(int task = numTasks - 1 ; task >= 0 ; task--) {
+                remainingTime[job][task] = remainingTime[job][task + 1] + durations[job][task];
+            }
+        }
+    }
+
+    /** Parses a instance from a file.
+     * Lines starting with '#' are comments. The first other line gives the number of jobs and tasks, each of the
+     * following ones gives the (machine, duration) pairs of a job. Anything after the expected numbers is ignored. */
     public static Instance fromFile(Path path) throws IOException {
-        Iterator<String> lines = Files.readAllLines(path).stream()
-                .filter(l -> !l.startsWith("#"))
-                .collect(Collectors.toList())
-                .iterator();
-
-        Scanner header = new Scanner(lines.next());
-        int num_jobs = header.nextInt();
-        int num_tasks = header.nextInt();
-        Instance pb = new Instance(num_jobs, num_tasks);
-
-        for(int job = 0 ; job<num_jobs ; job++) {
-            Scanner line = new Scanner(lines.next());
-            for(int task = 0 ; task < num_tasks ; task++) {
-                pb.machines[job][task] = line.nextInt();
-                pb.durations[job][task] = line.nextInt();
+        try(BufferedReader lines = Files.newBufferedReader(path)) {
+            int[] header = new int[2];
+            readInts(nextDataLine(lines, path), header, path);
+            int num_jobs = header[0];
+            int num_tasks = header[1];
+            Instance pb = new Instance(num_jobs, num_tasks);
+
+            int[] line = new int[2 * num_tasks];
+            for(int job = 0 ; job<num_jobs ; job++) {
+                readInts(nextDataLine(lines, path), line, path);
+                for(int task = 0 ; task < num_tasks ; task++) {
+                    pb.machines[job][task] = line[2 * task];
+                    pb.durations[job][task] = line[2 * task + 1];
+                }
             }
+            pb.buildIndexes();
+            return pb;
         }
+    }
 
-        return pb;
+    /** Next line that is neither a comment nor blank. */
+    private static String nextDataLine(BufferedReader lines, Path path) throws IOException {
+        String line;
+        while((line = lines.readLine()) != null) {
+            if(!line.startsWith("#") && !line.trim().isEmpty())
+                return line;
+        }
+        throw new IOException("Unexpected end of instance file " + path);
+    }
+
+    /** Reads the first target.length integers of the line, separated by whitespaces, without creating any object. */
+    private static void readInts(String line, int[] target, Path path) throws IOException {
+        int pos = 0;
+        for(int i = 0 ; i < target.length ; i++) {
+            while(pos < line.length() && Character.isWhitespace(line.charAt(pos)))
+                pos++;
+            boolean negative = pos < line.length() && line.charAt(pos) == '-';
+            if(negative)
+                pos++;
+            int start = pos;
+            int value = 0;
+            while(pos < line.length() && line.charAt(pos) >= '0' && line.charAt(pos) <= '9') {
+                value = value * 10 + (line.charAt(pos) - '0');
+                pos++;
+            }
+            if(pos == start || (pos < line.length() && !Character.isWhitespace(line.charAt(pos))))
+                throw new IOException("Malformed line in instance file " + path + ": \"" + line + "\"");
+            target[i] = negative ? -value : value;
+        }
     }
 }
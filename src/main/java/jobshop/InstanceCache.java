@@ -0,0 +1,136 @@
+package jobshop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Loads instances, keeping the parsed ones in memory and, optionally, in a compact binary format on disk.
+ *
+ * The binary format is a header (magic number, version, number of jobs, number of tasks) followed by the
+ * machines and then the durations of all tasks, job after job, as big-endian 32-bit integers.
+ * Binary files are memory-mapped when read.
+ *
+ * A cached binary file is used as long as it is more recent than the text file it was built from.
+ */
+public class InstanceCache {
+
+    private static final int MAGIC = 0x4A535042; // "JSPB"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 4;
+
+    /** Directory of the binary files, null to only keep instances in memory. */
+    private final Path cacheDir;
+
+    private final ConcurrentHashMap<Path, Instance> loaded = new ConcurrentHashMap<>();
+
+    /** Creates a cache that stores binary files in cacheDir, or only keeps instances in memory if cacheDir is null. */
+    public InstanceCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /** Returns the instance described in the given text file (see Instance.fromFile()). */
+    public Instance load(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        Instance instance = loaded.get(key);
+        if(instance == null) {
+            instance = loadFromDisk(key);
+            Instance previous = loaded.putIfAbsent(key, instance);
+            if(previous != null)
+                instance = previous;
+        }
+        return instance;
+    }
+
+    private Instance loadFromDisk(Path path) throws IOException {
+        if(cacheDir == null) {
+            return Instance.fromFile(path);
+        }
+        Path binary = cacheDir.resolve(path.getFileName() + "-" + Integer.toHexString(path.toString().hashCode()) + ".jspb");
+        if(Files.exists(binary)
+                && Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(path)) >= 0) {
+            try {
+                return readBinary(binary);
+            } catch (IOException e) {
+                // corrupted or outdated format, rebuild it from the text file
+            }
+        }
+        Instance instance = Instance.fromFile(path);
+        // the cache is best-effort: an instance that cannot be written (read-only or full directory) is still used
+        Path tmp = null;
+        try {
+            Files.createDirectories(cacheDir);
+            // write in a temporary file first so that concurrent loaders never read a partial file
+            tmp = Files.createTempFile(cacheDir, binary.getFileName().toString(), ".tmp");
+            writeBinary(instance, tmp);
+            Files.move(tmp, binary, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if(tmp != null) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return instance;
+    }
+
+    /** Writes the instance in the binary format. */
+    public static void writeBinary(Instance instance, Path path) throws IOException {
+        int size = instance.numJobs * instance.numTasks;
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (HEADER_INTS + 2 * size));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(instance.numJobs).putInt(instance.numTasks);
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            for(int task = 0 ; task < instance.numTasks ; task++) {
+                buffer.putInt(instance.machines[job][task]);
+            }
+        }
+        for(int job = 0 ; job < instance.numJobs ; job++) {
+            for(int task = 0 ; task < instance.numTasks ; task++) {
+                buffer.putInt(instance.durations[job][task]);
+            }
+        }
+        Files.write(path, buffer.array());
+    }
+
+    /** Reads an instance in the binary format by memory-mapping the file.
+     * @throws IOException if the file is not a valid binary instance, including invalid machines or durations. */
+    public static Instance readBinary(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if(fileSize < 4 * HEADER_INTS) {
+                throw new IOException("Truncated binary instance " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            IntBuffer ints = mapped.asIntBuffer();
+            if(ints.get() != MAGIC || ints.get() != VERSION) {
+                throw new IOException("Not a binary instance (or unsupported version): " + path);
+            }
+            int numJobs = ints.get();
+            int numTasks = ints.get();
+            if(numJobs < 0 || numTasks < 0 || fileSize != 4L * (HEADER_INTS + 2L * numJobs * numTasks)) {
+                throw new IOException("Truncated binary instance " + path);
+            }
+
+            Instance pb = new Instance(numJobs, numTasks);
+            for(int job = 0 ; job < numJobs ; job++) {
+                ints.get(pb.machines[job]);
+            }
+            for(int job = 0 ; job < numJobs ; job++) {
+                ints.get(pb.durations[job]);
+            }
+            for(int job = 0 ; job < numJobs ; job++) {
+                for(int task = 0 ; task < numTasks ; task++) {
+                    if(pb.machines[job][task] < 0 || pb.machines[job][task] >= numTasks || pb.durations[job][task] < 0) {
+                        throw new IOException("Invalid task (" + job + ", " + task + ") in binary instance " + path);
+                    }
+                }
+            }
+            pb.buildIndexes();
+            return pb;
+        }
+    }
+}
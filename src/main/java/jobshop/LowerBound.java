@@ -0,0 +1,146 @@
+package jobshop;
+
+import java.util.Arrays;
+
+/** Lower bounds on the makespan of any schedule of an instance. A schedule whose makespan reaches value() is optimal.
+ *
+ *  - job bound: total duration of the longest job.
+ *  - machine bound: for each machine, the earliest head of its tasks, plus their total duration, plus the smallest tail.
+ *  - Jackson bound: for each machine, the makespan of the optimal preemptive schedule of its tasks, each one being
+ *    released at its head and followed by its tail (Jackson's preemptive schedule). It dominates the machine bound.
+ *
+ * The head of a task is the total duration of the tasks before it in its job, its tail the one of the tasks after it.
+ * Bounds are computed once per instance, see Instance.lowerBound().
+ */
+public final class LowerBound {
+
+    public final int jobBound;
+    public final int machineBound;
+    public final int jacksonBound;
+
+    private LowerBound(int jobBound, int machineBound, int jacksonBound) {
+        this.jobBound = jobBound;
+        this.machineBound = machineBound;
+        this.jacksonBound = jacksonBound;
+    }
+
+    /** The best of the bounds. */
+    public int value() {
+        return Math.max(jobBound, Math.max(machineBound, jacksonBound));
+    }
+
+    static LowerBound of(Instance instance) {
+        int jobBound = 0;
+        for(int j = 0 ; j < instance.numJobs ; j++) {
+            jobBound = Math.max(jobBound, instance.remainingTime(j, 0));
+        }
+
+        // heads, durations and tails of the tasks of each machine
+        int[] size = new int[instance.numMachines];
+        int[][] heads = new int[instance.numMachines][instance.numJobs];
+        int[][] durations = new int[instance.numMachines][instance.numJobs];
+        int[][] tails = new int[instance.numMachines][instance.numJobs];
+        for(int j = 0 ; j < instance.numJobs ; j++) {
+            for(int t = 0 ; t < instance.numTasks ; t++) {
+                int m = instance.machine(j, t);
+                int i = size[m]++;
+                heads[m][i] = instance.remainingTime(j, 0) - instance.remainingTime(j, t);
+                durations[m][i] = instance.duration(j, t);
+                tails[m][i] = instance.remainingTime(j, t + 1);
+            }
+        }
+
+        int machineBound = 0;
+        int jacksonBound = 0;
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            if(size[m] == 0)
+                continue;
+            int minHead = Integer.MAX_VALUE;
+            int minTail = Integer.MAX_VALUE;
+            int total = 0;
+            for(int i = 0 ; i < size[m] ; i++) {
+                minHead = Math.min(minHead, heads[m][i]);
+                minTail = Math.min(minTail, tails[m][i]);
+                total += durations[m][i];
+            }
+            machineBound = Math.max(machineBound, minHead + total + minTail);
+            jacksonBound = Math.max(jacksonBound, jackson(heads[m], durations[m], tails[m], size[m]));
+        }
+        return new LowerBound(jobBound, machineBound, jacksonBound);
+    }
+
+    /** Makespan of Jackson's preemptive schedule of the n tasks on one machine: whenever a task is released or
+     * completed, the machine executes the released task with the longest tail. It is optimal for the preemptive
+     * problem, hence a lower bound for the non-preemptive one. O(n log n). */
+    static int jackson(int[] heads, int[] durations, int[] tails, int n) {
+        // (head << 32 | task), sorted: the tasks by release date
+        long[] byHead = new long[n];
+        for(int i = 0 ; i < n ; i++) {
+            byHead[i] = ((long) heads[i] << 32) | i;
+        }
+        Arrays.sort(byHead);
+        int[] remaining = Arrays.copyOf(durations, n);
+        // binary min-heap of the released tasks, keyed by ((MAX_VALUE - tail) << 32 | task): longest tail first
+        long[] released = new long[n];
+        int size = 0;
+
+        int bound = 0;
+        int time = 0;
+        int next = 0;
+        while(next < n || size > 0) {
+            if(size == 0) {
+                time = Math.max(time, (int) (byHead[next] >>> 32));
+            }
+            while(next < n && (int) (byHead[next] >>> 32) <= time) {
+                int task = (int) byHead[next++];
+                siftUp(released, size++, ((long) (Integer.MAX_VALUE - tails[task]) << 32) | task);
+            }
+            // run the task with the longest tail until it completes or the next release
+            int task = (int) released[0];
+            int until = next < n ? (int) (byHead[next] >>> 32) : Integer.MAX_VALUE;
+            int run = (int) Math.min(remaining[task], (long) until - time);
+            time += run;
+            remaining[task] -= run;
+            if(remaining[task] == 0) {
+                size--;
+                if(size > 0) {
+                    siftDown(released, size, released[size]);
+                }
+                bound = Math.max(bound, time + tails[task]);
+            }
+        }
+        return bound;
+    }
+
+    /** Inserts key in the heap at position i, the heap being heap[0..i). */
+    private static void siftUp(long[] heap, int i, long key) {
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(heap[parent] <= key)
+                break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    /** Replaces the root of the heap heap[0..size) by key. */
+    private static void siftDown(long[] heap, int size, long key) {
+        int i = 0;
+        while(2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if(child + 1 < size && heap[child + 1] < heap[child])
+                child++;
+            if(key <= heap[child])
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+
+    @Override
+    public String toString() {
+        return "LowerBound{job=" + jobBound + ", machine=" + machineBound + ", jackson=" + jacksonBound + "}";
+    }
+}
@@ -5,13 +5,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
-import jobshop.solvers.*;
-import jobshop.solvers.GreedySolver.PriorityESTRule;
-import jobshop.solvers.GreedySolver.PriorityRule;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
@@ -44,84 +43,16 @@ public class Main {
 	// --solver Greedy-SPT Descent-SPT Taboo-SPT(10,5000)
 	// --solver Greedy-LRPT Descent-LRPT Taboo-LRPT(10,5000)
 	
-	/** All solvers available in this program */
-    private static HashMap<String, Solver> solvers;
-    static {
-        solvers = new HashMap<>();
-        solvers.put("basic", new BasicSolver());
-        solvers.put("random", new RandomSolver());
-        // Add new solvers here
-        // ******************** Greedy Solver ******************** //
-        PriorityRule SPT = PriorityRule.SPT;
-        solvers.put("Greedy-SPT", new GreedySolver(SPT));
-        PriorityRule LRPT = PriorityRule.LRPT;
-        solvers.put("Greedy-LRPT", new GreedySolver(LRPT));
-        PriorityESTRule EST_SPT = PriorityESTRule.EST_SPT;
-        solvers.put("Greedy-EST_SPT", new GreedySolver(EST_SPT));
-        PriorityESTRule EST_LRPT = PriorityESTRule.EST_LRPT;
-        solvers.put("Greedy-EST_LRPT", new GreedySolver(EST_LRPT));
-        
-        // ******************* Descent Solver ******************** //
-        solvers.put("Descent-SPT",      new DescentSolver(SPT));
-        solvers.put("Descent-LRPT",     new DescentSolver(LRPT));
-        solvers.put("Descent-EST_SPT",  new DescentSolver(EST_SPT));
-        solvers.put("Descent-EST_LRPT", new DescentSolver(EST_LRPT));
-        
-        // ******************** Taboo Solver ********************* //
-        solvers.put("Taboo-EST_LRPT(1,1)",   new TabooSolver(EST_LRPT, 1, 1));
-        
-        solvers.put("Taboo-EST_LRPT(1,10)",  new TabooSolver(EST_LRPT, 1, 10));
-        solvers.put("Taboo-EST_LRPT(2,10)",  new TabooSolver(EST_LRPT, 2, 10));
-        solvers.put("Taboo-EST_LRPT(5,10)",  new TabooSolver(EST_LRPT, 5, 10));
-        solvers.put("Taboo-EST_LRPT(10,10)", new TabooSolver(EST_LRPT, 10, 10));
-        
-        solvers.put("Taboo-EST_LRPT(1,100)",   new TabooSolver(EST_LRPT, 1, 100));
-        solvers.put("Taboo-EST_LRPT(6,100)",   new TabooSolver(EST_LRPT, 6, 100));
-        solvers.put("Taboo-EST_LRPT(8,100)",   new TabooSolver(EST_LRPT, 8, 100));
-        solvers.put("Taboo-EST_LRPT(10,100)",  new TabooSolver(EST_LRPT, 10, 100));
-        solvers.put("Taboo-EST_LRPT(12,100)",  new TabooSolver(EST_LRPT, 12, 100));
-        solvers.put("Taboo-EST_LRPT(14,100)",  new TabooSolver(EST_LRPT, 14, 100));
-        solvers.put("Taboo-EST_LRPT(20,100)",  new TabooSolver(EST_LRPT, 20, 100));
-        solvers.put("Taboo-EST_LRPT(50,100)",  new TabooSolver(EST_LRPT, 50, 100));
-        solvers.put("Taboo-EST_LRPT(100,100)", new TabooSolver(EST_LRPT, 100, 100));
-        
-        solvers.put("Taboo-EST_LRPT(1,1000)",   new TabooSolver(EST_LRPT, 1, 1000));
-        solvers.put("Taboo-EST_LRPT(6,1000)",   new TabooSolver(EST_LRPT, 6, 1000));
-        solvers.put("Taboo-EST_LRPT(8,1000)",   new TabooSolver(EST_LRPT, 8, 1000));
-        solvers.put("Taboo-EST_LRPT(10,1000)",  new TabooSolver(EST_LRPT, 10, 1000));
-        solvers.put("Taboo-EST_LRPT(12,1000)",  new TabooSolver(EST_LRPT, 12, 1000));
-        solvers.put("Taboo-EST_LRPT(14,1000)",  new TabooSolver(EST_LRPT, 14, 1000));
-        solvers.put("Taboo-EST_LRPT(20,1000)",  new TabooSolver(EST_LRPT, 20, 1000));
-        solvers.put("Taboo-EST_LRPT(50,1000)",  new TabooSolver(EST_LRPT, 50, 1000));
-        solvers.put("Taboo-EST_LRPT(100,1000)", new TabooSolver(EST_LRPT, 100, 1000));
-        
-        solvers.put("Taboo-EST_LRPT(1,5000)",   new TabooSolver(EST_LRPT, 1, 5000));
-        solvers.put("Taboo-EST_LRPT(6,5000)",   new TabooSolver(EST_LRPT, 6, 5000));
-        solvers.put("Taboo-EST_LRPT(8,5000)",   new TabooSolver(EST_LRPT, 8, 5000));
-        solvers.put("Taboo-EST_LRPT(10,5000)",  new TabooSolver(EST_LRPT, 10, 5000));
-        solvers.put("Taboo-EST_LRPT(12,5000)",  new TabooSolver(EST_LRPT, 12, 5000));
-        solvers.put("Taboo-EST_LRPT(14,5000)",  new TabooSolver(EST_LRPT, 14, 5000));
-        solvers.put("Taboo-EST_LRPT(20,5000)",  new TabooSolver(EST_LRPT, 20, 5000));
-        solvers.put("Taboo-EST_LRPT(50,5000)",  new TabooSolver(EST_LRPT, 50, 5000));
-        solvers.put("Taboo-EST_LRPT(100,5000)", new TabooSolver(EST_LRPT, 100, 5000));
-        
-        solvers.put("Taboo-EST_LRPT(10,12000)", new TabooSolver(EST_LRPT, 10, 12000));
-        solvers.put("Taboo-EST_LRPT(14,12000)", new TabooSolver(EST_LRPT, 14, 12000));
-        
-        solvers.put("Taboo-EST_LRPT(10,2000)", new TabooSolver(EST_LRPT, 10, 2000));
-        solvers.put("Taboo-EST_LRPT(10,4000)", new TabooSolver(EST_LRPT, 10, 4000));
-        solvers.put("Taboo-EST_LRPT(10,6000)", new TabooSolver(EST_LRPT, 10, 6000));
-        solvers.put("Taboo-EST_LRPT(10,8000)", new TabooSolver(EST_LRPT, 10, 8000));
-        solvers.put("Taboo-EST_LRPT(10,10000)", new TabooSolver(EST_LRPT, 10, 10000));
-        solvers.put("Taboo-EST_LRPT(10,12000)", new TabooSolver(EST_LRPT, 10, 12000));
-        solvers.put("Taboo-EST_LRPT(10,14000)", new TabooSolver(EST_LRPT, 10, 14000));
-        
-        solvers.put("Taboo-SPT(10,1000)",  new TabooSolver(SPT, 10, 1000));
-        solvers.put("Taboo-LRPT(10,1000)",  new TabooSolver(LRPT, 10, 1000));
-        solvers.put("Taboo-EST_SPT(10,1000)",  new TabooSolver(EST_SPT, 10, 1000));
-    }
-
-
+	// *** Portfolio Solver (members run in parallel) *** //
+	// --solver Portfolio
+	
+	// *** Solver specifications and grids (see SolverSpec) *** //
+	// --solver "taboo(rule=EST_LRPT,tenure=10,iters=5000,threads=8)"
+	// --solver "taboo(rule=EST_LRPT|EST_SPT,tenure=6..14:2,iters=1000|5000)"
+	
+	// *** TSAB: taboo search with back jumps to elite solutions *** //
+	// --solver "tsab(rule=EST_LRPT,tenure=8,stagnation=2000,elite=5)"
+	
     public static void main(String[] args) {
         ArgumentParser parser = ArgumentParsers.newFor("jsp-solver").build()
                 .defaultHelp(true)
@@ -134,12 +65,28 @@ public class Main {
         parser.addArgument("--solver")
                 .nargs("+")
                 .required(true)
-                .help("Solver(s) to use (space separated if more than one)");
+                .help("Solver(s) to use (space separated if more than one), e.g. Descent-EST_LRPT or taboo(rule=EST_LRPT,tenure=6|10,iters=1000..5000:2000)");
 
         parser.addArgument("--instance")
                 .nargs("+")
                 .required(true)
                 .help("Instance(s) to solve (space separated if more than one)");
+        parser.addArgument("-j", "--jobs")
+                .setDefault(1)
+                .type(Integer.class)
+                .help("Number of (instance, solver) pairs solved in parallel, each with its own timeout");
+        parser.addArgument("--csv")
+                .help("File where one CSV record per run is written as soon as the run finishes");
+        parser.addArgument("--jsonl")
+                .help("File where one JSON record per run is written as soon as the run finishes");
+        parser.addArgument("--trace")
+                .help("File where the convergence traces (makespans at each iteration) of the local searches are written");
+        parser.addArgument("--trace-size")
+                .setDefault(100000)
+                .type(Integer.class)
+                .help("Maximal number of points of a convergence trace (the last ones are kept)");
+        parser.addArgument("--instance-cache")
+                .help("Directory where parsed instances are cached in binary format (none by default)");
 
         Namespace ns = null;
         try {
@@ -153,12 +100,21 @@ public class Main {
 
         long solveTimeMs = ns.getLong("timeout") * 1000;
 
-        List<String> solversToTest = ns.getList("solver");
-        for(String solverName : solversToTest) {
-            if(!solvers.containsKey(solverName)) {
-                System.err.println("ERROR: Solver \"" + solverName + "\" is not avalaible.");
-                System.err.println("       Available solvers: " + solvers.keySet().toString());
-                System.err.println("       You can provide your own solvers by adding them to the `Main.solvers` HashMap.");
+        // solvers are built from their specifications, grids being expanded in as many solvers
+        List<String> solversToTest = new ArrayList<>();
+        List<Solver> solvers = new ArrayList<>();
+        for(String spec : ns.<String>getList("solver")) {
+            try {
+                for(String solverName : SolverSpec.expand(spec)) {
+                    solvers.add(SolverSpec.parse(solverName));
+                    solversToTest.add(solverName);
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("ERROR: Solver \"" + spec + "\" is not available: " + e.getMessage());
+                System.err.println("       Solvers are given as (omitted parameters take these default values):");
+                for(String usage : SolverSpec.USAGE) {
+                    System.err.println("         " + usage);
+                }
                 System.exit(1);
             }
         }
@@ -174,50 +130,106 @@ public class Main {
             instances.addAll(matches);
         }
 
+        String cacheDir = ns.getString("instance_cache");
+        InstanceCache instanceCache = new InstanceCache(cacheDir == null ? null : Paths.get(cacheDir));
+
+        int numWorkers = ns.getInt("jobs");
+        if(numWorkers < 1) {
+            System.err.println("ERROR: the number of jobs must be at least 1.");
+            System.exit(1);
+        }
+        // (instance, solver) pairs are independent: they are all submitted at once and the results are printed
+        // in the usual order as they become available. With a single worker this is the sequential behavior.
+        ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
+        // machine-readable records of the runs, in addition to the table
+        List<RunWriter> writers = new ArrayList<>();
+
         float[] runtimes = new float[solversToTest.size()];
         float[] distances = new float[solversToTest.size()];
 
         try {
+            if(ns.getString("csv") != null)
+                writers.add(RunWriter.csv(Paths.get(ns.getString("csv"))));
+            if(ns.getString("jsonl") != null)
+                writers.add(RunWriter.jsonLines(Paths.get(ns.getString("jsonl"))));
+            if(ns.getString("trace") != null)
+                writers.add(RunWriter.traceCsv(Paths.get(ns.getString("trace"))));
+            // capacity of the convergence traces, 0 if they are not recorded
+            int traceSize = ns.getString("trace") != null ? ns.getInt("trace_size") : 0;
+
+            List<Instance> loadedInstances = new ArrayList<>();
+            List<List<Future<Run>>> runs = new ArrayList<>();
+            for(String instanceName : instances) {
+                Path path = Paths.get("instances/", instanceName);
+                Instance instance = instanceCache.load(path);
+                loadedInstances.add(instance);
+                int bestKnown = BestKnownResult.of(instanceName);
+
+                List<Future<Run>> instanceRuns = new ArrayList<>();
+                for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
+                    String solverName = solversToTest.get(solverId);
+                    Solver solver = solvers.get(solverId);
+                    instanceRuns.add(workers.submit(() -> {
+                        Run run = Run.of(solver, instance, solveTimeMs, traceSize);
+                        RunWriter.Record record = new RunWriter.Record(instanceName, instance, solverName, bestKnown,
+                                run.result, run.runtime, run.timeToBest);
+                        for(RunWriter writer : writers)
+                            writer.write(record);
+                        return run;
+                    }));
+                }
+                runs.add(instanceRuns);
+            }
+
+            // columns are 30 characters wide, or more for long solver names (e.g. from a grid)
+            String[] padding = new String[solversToTest.size()];
+            for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
+                int extraWidth = Math.max(0, solversToTest.get(solverId).length() + 1 - 30);
+                padding[solverId] = new String(new char[extraWidth]).replace('\0', ' ');
+            }
+
             output.print(  "                         ");
-            for(String s : solversToTest)
-                output.printf("%-30s", s);
+            for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++)
+                output.printf("%-" + (30 + padding[solverId].length()) + "s", solversToTest.get(solverId));
             output.println();
             output.print("instance size  best      ");
-            for(String s : solversToTest) {
-                output.print("runtime makespan ecart        ");
+            for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
+                output.print("runtime makespan ecart        " + padding[solverId]);
             }
             output.println();
 
 
-            for(String instanceName : instances) {
+            for(int instanceId = 0 ; instanceId < instances.size() ; instanceId++) {
+                String instanceName = instances.get(instanceId);
+                Instance instance = loadedInstances.get(instanceId);
                 int bestKnown = BestKnownResult.of(instanceName);
 
-
-                Path path = Paths.get("instances/", instanceName);
-                Instance instance = Instance.fromFile(path);
-
                 output.printf("%-8s %-5s %4d      ",instanceName, instance.numJobs +"x"+instance.numTasks, bestKnown);
 
                 for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
-                    String solverName = solversToTest.get(solverId);
-                    Solver solver = solvers.get(solverName);
-                    long start = System.currentTimeMillis();
-                    long deadline = System.currentTimeMillis() + solveTimeMs;
-                    Result result = solver.solve(instance, deadline);
-                    long runtime = System.currentTimeMillis() - start;
-
-                    if(!result.schedule.isValid()) {
-                        System.err.println("ERROR: solver returned an invalid schedule");
+                    Run run = runs.get(instanceId).get(solverId).get();
+                    Result result = run.result;
+                    long runtime = run.runtime;
+
+                    List<Schedule.Violation> violations = result.schedule.violations();
+                    if(!violations.isEmpty()) {
+                        System.err.println("ERROR: solver " + solversToTest.get(solverId) + " returned an invalid schedule for "
+                                + instanceName + ", violated constraints:");
+                        for(Schedule.Violation violation : violations.subList(0, Math.min(10, violations.size()))) {
+                            System.err.println("       " + violation);
+                        }
+                        if(violations.size() > 10) {
+                            System.err.println("       ... (" + violations.size() + " in total)");
+                        }
                         System.exit(1);
                     }
 
-                    assert result.schedule.isValid();
                     int makespan = result.schedule.makespan();
                     float dist = 100f * (makespan - bestKnown) / (float) bestKnown;
                     runtimes[solverId] += (float) runtime / (float) instances.size();
                     distances[solverId] += dist / (float) instances.size();
 
-                    output.printf("%7d %8s %5.1f        ", runtime, makespan, dist);
+                    output.printf("%7d %8s %5.1f        %s", runtime, makespan, dist, padding[solverId]);
                     output.flush();
                 }
                 output.println();
@@ -227,7 +239,7 @@ public class Main {
 
             output.printf("%-8s %-5s %4s      ", "AVG", "-", "-");
             for(int solverId = 0 ; solverId < solversToTest.size() ; solverId++) {
-                output.printf("%7.1f %8s %5.1f        ", runtimes[solverId], "-", distances[solverId]);
+                output.printf("%7.1f %8s %5.1f        %s", runtimes[solverId], "-", distances[solverId], padding[solverId]);
             }
 
 
@@ -235,6 +247,36 @@ public class Main {
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(1);
+        } finally {
+            workers.shutdownNow();
+            for(RunWriter writer : writers)
+                writer.close();
+        }
+    }
+
+    /** Result of one solver on one instance, with the time it took and the time at which its best schedule was found. */
+    private static class Run {
+        final Result result;
+        final long runtime;
+        final long timeToBest;
+
+        Run(Result result, long runtime, long timeToBest) {
+            this.result = result;
+            this.runtime = runtime;
+            this.timeToBest = timeToBest;
+        }
+
+        /** Solves the instance, the deadline starting when the solver starts (not when the run is submitted).
+         * The convergence trace is recorded if traceSize > 0. */
+        static Run of(Solver solver, Instance instance, long solveTimeMs, int traceSize) {
+            long start = System.currentTimeMillis();
+            long deadline = System.currentTimeMillis() + solveTimeMs;
+            // time of the last improvement reported by the solver
+            long[] lastImprovement = { start };
+            Result result = solver.solve(instance, deadline, schedule -> lastImprovement[0] = System.currentTimeMillis(),
+                    traceSize > 0 ? new MetricsRecorder(traceSize) : new MetricsRecorder());
+            long runtime = System.currentTimeMillis() - start;
+            return new Run(result, runtime, lastImprovement[0] - start);
         }
     }
 }
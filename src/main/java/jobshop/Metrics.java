@@ -0,0 +1,136 @@
+package jobshop;
+
+import java.util.Arrays;
+
+/** Where solvers report what they do: counters, time spent in their main steps, the makespans of the
+ * improving solutions they find and, for local searches, the makespans at each iteration (convergence trace).
+ *
+ * Solvers always report into a Metrics, which is Metrics.NONE unless the caller wants to record them
+ * (see MetricsRecorder). NONE does nothing, not even reading the clock, so reporting costs nothing when
+ * metrics are not recorded. Implementations must accept reports from several threads.
+ *
+ * Timers are used as:
+ *     long start = metrics.startTimer();
+ *     ... work ...
+ *     metrics.stopTimer(Metrics.Timer.DECODE, start);
+ */
+public interface Metrics {
+
+    enum Counter {
+        /** iterations of the main loop of the solver */
+        ITERATIONS,
+        /** neighbors (or candidate solutions) whose makespan was evaluated */
+        EVALUATIONS,
+        /** moves applied to the current solution */
+        MOVES,
+        /** encodings decoded into a schedule (toSchedule() calls) */
+        DECODES
+    }
+
+    enum Timer {
+        /** decoding encodings into schedules */
+        DECODE,
+        /** copying or converting encodings */
+        COPY,
+        /** computing heads and tails and extracting the critical blocks */
+        CRITICAL_PATH,
+        /** generating the neighbors of the current solution */
+        NEIGHBORHOOD,
+        /** evaluating the neighbors */
+        EVALUATION
+    }
+
+    /** Metrics that are not recorded. */
+    Metrics NONE = new Metrics() {
+        @Override public void count(Counter counter, long n) {}
+        @Override public long startTimer() { return 0; }
+        @Override public void stopTimer(Timer timer, long start) {}
+        @Override public void improvement(int makespan) {}
+        @Override public void trace(long iteration, int currentMakespan, int bestMakespan) {}
+        @Override public Snapshot snapshot() { return Snapshot.EMPTY; }
+    };
+
+    void count(Counter counter, long n);
+
+    default void count(Counter counter) {
+        count(counter, 1);
+    }
+
+    /** Returns a value to pass to stopTimer() at the end of the timed work. */
+    long startTimer();
+
+    /** Adds the time elapsed since startTimer() returned start to the timer. */
+    void stopTimer(Timer timer, long start);
+
+    /** Reports that a solution with the given makespan improved on all the previous ones. */
+    void improvement(int makespan);
+
+    /** Reports the makespans of the current and best solutions at the end of an iteration of a local search. */
+    void trace(long iteration, int currentMakespan, int bestMakespan);
+
+    /** The metrics reported so far. */
+    Snapshot snapshot();
+
+    /** Immutable copy of the metrics of a run. */
+    final class Snapshot {
+
+        /** Snapshot of metrics that were not recorded: all counters and timers are 0, with no improvement. */
+        public static final Snapshot EMPTY = new Snapshot(new long[Counter.values().length],
+                new long[Timer.values().length], new long[0], new int[0], null);
+
+        private final long[] counters;
+        private final long[] timerNanos;
+        private final long[] improvementNanos;
+        private final int[] improvementMakespans;
+        private final ConvergenceTrace trace;
+
+        public Snapshot(long[] counters, long[] timerNanos, long[] improvementNanos, int[] improvementMakespans,
+                        ConvergenceTrace trace) {
+            this.counters = counters.clone();
+            this.timerNanos = timerNanos.clone();
+            this.improvementNanos = improvementNanos.clone();
+            this.improvementMakespans = improvementMakespans.clone();
+            this.trace = trace == null ? null : trace.copy();
+        }
+
+        public long count(Counter counter) {
+            return counters[counter.ordinal()];
+        }
+
+        /** Total time measured by the timer, in nanoseconds. */
+        public long nanos(Timer timer) {
+            return timerNanos[timer.ordinal()];
+        }
+
+        /** Number of improvements in the timeline. */
+        public int numImprovements() {
+            return improvementMakespans.length;
+        }
+
+        /** Time of the i-th improvement, in nanoseconds since the recording started. */
+        public long improvementNanos(int i) {
+            return improvementNanos[i];
+        }
+
+        /** Makespan of the i-th improvement. */
+        public int improvementMakespan(int i) {
+            return improvementMakespans[i];
+        }
+
+        /** The convergence trace, null if it was not recorded. */
+        public ConvergenceTrace trace() {
+            return trace;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder res = new StringBuilder("Metrics{");
+            for(Counter counter : Counter.values())
+                res.append(counter).append('=').append(count(counter)).append(' ');
+            for(Timer timer : Timer.values())
+                res.append(timer).append('=').append(nanos(timer) / 1000000).append("ms ");
+            res.append("improvements=").append(Arrays.toString(improvementMakespans)).append('}');
+            return res.toString();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package jobshop;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Metrics that are recorded, so that the solver can return them in its Result.
+ *
+ * Counters and timers are atomic and may be updated from several threads (e.g. by the members of a portfolio).
+ * The improvement timeline is kept in primitive arrays that grow as needed. The convergence trace is only recorded
+ * if a capacity is given, and then keeps the last points (see ConvergenceTrace).
+ */
+public class MetricsRecorder implements Metrics {
+
+    private final long origin = System.nanoTime();
+
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private final AtomicLongArray timerNanos = new AtomicLongArray(Timer.values().length);
+
+    private long[] improvementNanos = new long[16];
+    private int[] improvementMakespans = new int[16];
+    private int numImprovements = 0;
+
+    /** null if the convergence trace is not recorded */
+    private final ConvergenceTrace trace;
+
+    /** Records everything except the convergence trace. */
+    public MetricsRecorder() {
+        this.trace = null;
+    }
+
+    /** Also records the last traceCapacity points of the convergence trace. */
+    public MetricsRecorder(int traceCapacity) {
+        this.trace = new ConvergenceTrace(traceCapacity);
+    }
+
+    @Override
+    public void count(Counter counter, long n) {
+        counters.addAndGet(counter.ordinal(), n);
+    }
+
+    @Override
+    public long startTimer() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void stopTimer(Timer timer, long start) {
+        timerNanos.addAndGet(timer.ordinal(), System.nanoTime() - start);
+    }
+
+    @Override
+    public synchronized void improvement(int makespan) {
+        if(numImprovements == improvementMakespans.length) {
+            improvementNanos = Arrays.copyOf(improvementNanos, 2 * numImprovements);
+            improvementMakespans = Arrays.copyOf(improvementMakespans, 2 * numImprovements);
+        }
+        improvementNanos[numImprovements] = System.nanoTime() - origin;
+        improvementMakespans[numImprovements] = makespan;
+        numImprovements++;
+    }
+
+    @Override
+    public void trace(long iteration, int currentMakespan, int bestMakespan) {
+        if(trace != null) {
+            trace.record(iteration, currentMakespan, bestMakespan);
+        }
+    }
+
+    @Override
+    public synchronized Snapshot snapshot() {
+        long[] c = new long[counters.length()];
+        for(int i = 0 ; i < c.length ; i++)
+            c[i] = counters.get(i);
+        long[] t = new long[timerNanos.length()];
+        for(int i = 0 ; i < t.length ; i++)
+            t[i] = timerNanos.get(i);
+        return new Snapshot(c, t, Arrays.copyOf(improvementNanos, numImprovements),
+                Arrays.copyOf(improvementMakespans, numImprovements), trace);
+    }
+}
@@ -3,9 +3,14 @@ package jobshop;
 public class Result {
 
     public Result(Instance instance, Schedule schedule, ExitCause cause) {
+        this(instance, schedule, cause, Metrics.Snapshot.EMPTY);
+    }
+
+    public Result(Instance instance, Schedule schedule, ExitCause cause, Metrics.Snapshot metrics) {
         this.instance = instance;
         this.schedule = schedule;
         this.cause = cause;
+        this.metrics = metrics;
     }
 
     public enum ExitCause {
@@ -16,5 +21,7 @@ public class Result {
     public final Schedule schedule;
     public final ExitCause cause;
 
+    /** What the solver reported while solving (empty if the metrics were not recorded). */
+    public final Metrics.Snapshot metrics;
 
 }
@@ -0,0 +1,171 @@
+package jobshop;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/** Writes one record per run (a solver on an instance) in a machine-readable format: CSV or JSON lines,
+ * or the convergence traces of the runs as CSV.
+ *
+ * Each record is flushed as soon as it is written, so that the file can be followed while a long sweep
+ * is running. Records may be written from several threads, in the order in which the runs finish.
+ *
+ * Counters come from the metrics of the result (0 for solvers that do not report them). JSON records also hold
+ * all the counters and timers of the metrics.
+ */
+public abstract class RunWriter implements Closeable {
+
+    /** Everything that is known about a finished run. Times are in milliseconds. */
+    public static class Record {
+        public final String instance;
+        public final Instance pb;
+        public final String solver;
+        public final int bestKnown;
+        public final Result result;
+        public final long runtime;
+        public final long timeToBest;
+
+        public Record(String instance, Instance pb, String solver, int bestKnown, Result result, long runtime, long timeToBest) {
+            this.instance = instance;
+            this.pb = pb;
+            this.solver = solver;
+            this.bestKnown = bestKnown;
+            this.result = result;
+            this.runtime = runtime;
+            this.timeToBest = timeToBest;
+        }
+
+        public int makespan() {
+            return result.schedule.makespan();
+        }
+
+        /** Distance to the best known result, in percent (the `ecart` column of the table). */
+        public float gap() {
+            return 100f * (makespan() - bestKnown) / (float) bestKnown;
+        }
+    }
+
+    private final Path path;
+    private final PrintWriter out;
+
+    private RunWriter(Path path) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        this.path = path;
+        this.out = new PrintWriter(writer);
+    }
+
+    /** A writer of comma separated values, with a header line. */
+    public static RunWriter csv(Path path) throws IOException {
+        RunWriter writer = new RunWriter(path) {
+            @Override
+            String format(Record r) {
+                return String.join(",", r.instance, r.pb.numJobs + "x" + r.pb.numTasks, quoted(r.solver),
+                        String.valueOf(r.makespan()), String.valueOf(r.bestKnown), String.format(Locale.ROOT, "%.2f", r.gap()),
+                        String.valueOf(r.runtime), r.result.cause.name(),
+                        String.valueOf(r.result.metrics.count(Metrics.Counter.ITERATIONS)),
+                        String.valueOf(r.result.metrics.count(Metrics.Counter.EVALUATIONS)), String.valueOf(r.timeToBest));
+            }
+        };
+        writer.writeLine("instance,size,solver,makespan,best,gap,runtime,cause,iterations,evaluated_neighbors,time_to_best");
+        return writer;
+    }
+
+    /** A writer of JSON lines: one JSON object per line. */
+    public static RunWriter jsonLines(Path path) throws IOException {
+        return new RunWriter(path) {
+            @Override
+            String format(Record r) {
+                return "{\"instance\":" + string(r.instance)
+                        + ",\"jobs\":" + r.pb.numJobs
+                        + ",\"tasks\":" + r.pb.numTasks
+                        + ",\"solver\":" + string(r.solver)
+                        + ",\"makespan\":" + r.makespan()
+                        + ",\"best\":" + r.bestKnown
+                        + ",\"gap\":" + String.format(Locale.ROOT, "%.2f", r.gap())
+                        + ",\"runtime\":" + r.runtime
+                        + ",\"cause\":" + string(r.result.cause.name())
+                        + ",\"iterations\":" + r.result.metrics.count(Metrics.Counter.ITERATIONS)
+                        + ",\"evaluated_neighbors\":" + r.result.metrics.count(Metrics.Counter.EVALUATIONS)
+                        + ",\"time_to_best\":" + r.timeToBest
+                        + ",\"metrics\":" + metrics(r.result.metrics)
+                        + "}";
+            }
+
+            /** Counters by name, and timers by name in milliseconds. */
+            private String metrics(Metrics.Snapshot metrics) {
+                StringBuilder res = new StringBuilder("{");
+                for(Metrics.Counter counter : Metrics.Counter.values())
+                    res.append(string(counter.name().toLowerCase(Locale.ROOT))).append(':').append(metrics.count(counter)).append(',');
+                for(Metrics.Timer timer : Metrics.Timer.values())
+                    res.append(string(timer.name().toLowerCase(Locale.ROOT) + "_ms")).append(':')
+                            .append(String.format(Locale.ROOT, "%.3f", metrics.nanos(timer) / 1e6)).append(',');
+                res.setCharAt(res.length() - 1, '}');
+                return res.toString();
+            }
+
+            private String string(String value) {
+                return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+            }
+        };
+    }
+
+    /** A writer of the convergence traces of the runs, as CSV with one line per point of the trace.
+     * Runs without trace are not written. Elapsed times are in microseconds. */
+    public static RunWriter traceCsv(Path path) throws IOException {
+        RunWriter writer = new RunWriter(path) {
+            @Override
+            String format(Record r) {
+                ConvergenceTrace trace = r.result.metrics.trace();
+                if(trace == null || trace.size() == 0) {
+                    return null;
+                }
+                StringBuilder res = new StringBuilder();
+                for(int i = 0 ; i < trace.size() ; i++) {
+                    if(i > 0)
+                        res.append(System.lineSeparator());
+                    res.append(r.instance).append(',').append(quoted(r.solver)).append(',')
+                            .append(trace.elapsedNanos(i) / 1000).append(',').append(trace.iteration(i)).append(',')
+                            .append(trace.currentMakespan(i)).append(',').append(trace.bestMakespan(i));
+                }
+                return res.toString();
+            }
+        };
+        writer.writeLine("instance,solver,elapsed_us,iteration,current,best");
+        return writer;
+    }
+
+    /** Quotes a CSV value if needed. */
+    private static String quoted(String value) {
+        return value.indexOf(',') < 0 && value.indexOf('"') < 0 ? value : '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /** The line(s) describing a run, without the final line terminator, or null if there is nothing to write. */
+    abstract String format(Record record);
+
+    public synchronized void write(Record record) {
+        String lines = format(record);
+        if(lines != null)
+            writeLine(lines);
+    }
+
+    /** @throws UncheckedIOException if the line could not be written (full disk, closed pipe...): PrintWriter does
+     * not report errors by itself, records would otherwise be lost silently. */
+    private synchronized void writeLine(String line) {
+        out.println(line);
+        out.flush();
+        if(out.checkError()) {
+            throw new UncheckedIOException(new IOException("Could not write the runs to " + path));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        out.close();
+    }
+}
@@ -4,55 +4,157 @@ package jobshop;
 import jobshop.encodings.Task;
 
 import java.util.*;
-import java.util.stream.IntStream;
 
 public class Schedule {
     public final Instance pb;
     // start times of each job and task
-    // times[j][i] is the start time of task (j,i) : i^th task of the j^th job
-    final int[][] times;
+    // times[j * numTasks + i] is the start time of task (j,i) : i^th task of the j^th job
+    final int[] times;
 
     public Schedule(Instance pb, int[][] times) {
         this.pb = pb;
-        this.times = new int[pb.numJobs][];
+        this.times = new int[pb.numJobs * pb.numTasks];
         for(int j = 0 ; j < pb.numJobs ; j++) {
-            this.times[j] = Arrays.copyOf(times[j], pb.numTasks);
+            System.arraycopy(times[j], 0, this.times, j * pb.numTasks, pb.numTasks);
         }
     }
 
+    private Schedule(Instance pb, int[] times) {
+        this.pb = pb;
+        this.times = times;
+    }
+
+    /** A schedule using the given start times, startTimes[j * numTasks + i] being the start time of task (j,i).
+     * The array is not copied: it must not be modified afterwards. */
+    public static Schedule wrap(Instance pb, int[] startTimes) {
+        if(startTimes.length != pb.numJobs * pb.numTasks) {
+            throw new IllegalArgumentException("Expected " + pb.numJobs * pb.numTasks + " start times, got " + startTimes.length);
+        }
+        return new Schedule(pb, startTimes);
+    }
+
     public int startTime(int job, int task) {
-        return times[job][task];
+        return times[job * pb.numTasks + task];
     }
 
-    /** Returns true if this schedule is valid (no constraint is violated) */
-    public boolean isValid() {
-        for(int j = 0 ; j<pb.numJobs ; j++) {
-            for(int t = 1 ; t<pb.numTasks ; t++) {
-                if(startTime(j, t-1) + pb.duration(j, t-1) > startTime(j, t))
-                    return false;
+    /** Writes in `ids` the ids (job * numTasks + task) of all tasks by increasing start time, ties being broken by id,
+     * in O(numJobs * numTasks) with a counting sort when the makespan is small compared to the number of tasks
+     * and O(numJobs * numTasks * log(numJobs * numTasks)) otherwise. */
+    public void tasksByStartTime(int[] ids) {
+        int size = times.length;
+        int horizon = 0;
+        int earliest = 0;
+        for(int time : times) {
+            horizon = Math.max(horizon, time);
+            earliest = Math.min(earliest, time);
+        }
+        if(earliest == 0 && horizon < COUNTING_SORT_RATIO * size) {
+            // number of tasks starting before each date
+            int[] before = new int[horizon + 2];
+            for(int time : times) {
+                before[time + 1]++;
             }
-            for(int t = 0 ; t<pb.numTasks ; t++) {
-                if(startTime(j, t) < 0)
-                    return false;
+            for(int d = 1 ; d <= horizon ; d++) {
+                before[d + 1] += before[d];
+            }
+            // ids are visited in increasing order, so ties keep it
+            for(int id = 0 ; id < size ; id++) {
+                ids[before[times[id]]++] = id;
+            }
+        } else {
+            // start time in the high bits, id in the low ones
+            long[] keys = new long[size];
+            for(int id = 0 ; id < size ; id++) {
+                keys[id] = ((long) times[id] << 32) | id;
+            }
+            Arrays.sort(keys);
+            for(int i = 0 ; i < size ; i++) {
+                ids[i] = (int) keys[i];
             }
         }
+    }
 
-        for (int machine = 0 ; machine < pb.numMachines ; machine++) {
-            for(int j1=0 ; j1<pb.numJobs ; j1++) {
-                int t1 = pb.task_with_machine(j1, machine);
-                for(int j2=j1+1 ; j2<pb.numJobs ; j2++) {
-                    int t2 = pb.task_with_machine(j2, machine);
+    // tasksByStartTime() uses a counting sort while the makespan is below this many times the number of tasks
+    private static final int COUNTING_SORT_RATIO = 4;
 
-                    boolean t1_first = startTime(j1, t1) + pb.duration(j1, t1) <= startTime(j2, t2);
-                    boolean t2_first = startTime(j2, t2) + pb.duration(j2, t2) <= startTime(j1, t1);
+    /** A constraint violated by a schedule, and the tasks involved. */
+    public static final class Violation {
 
-                    if(!t1_first && !t2_first)
-                        return false;
-                }
+        public enum Kind {
+            /** the task starts before time 0 (second is null) */
+            NegativeStart,
+            /** the second task of the job starts before the end of the first one */
+            JobPrecedence,
+            /** the two tasks overlap on their machine, the first one starting first */
+            MachineOverlap
+        }
+
+        public final Kind kind;
+        public final Task first;
+        public final Task second;
+
+        Violation(Kind kind, Task first, Task second) {
+            this.kind = kind;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + first + (second == null ? "" : " " + second);
+        }
+    }
+
+    /** Returns true if this schedule is valid (no constraint is violated) */
+    public boolean isValid() {
+        return findViolations(1).isEmpty();
+    }
+
+    /** Returns all the constraints violated by this schedule, an empty list if it is valid.
+     * The overlaps on a machine are reported between a task and the task of the machine with the latest end among
+     * the ones starting before it. */
+    public List<Violation> violations() {
+        return findViolations(Integer.MAX_VALUE);
+    }
+
+    /** Finds at most `limit` violations in O(numJobs * numTasks * log(numJobs * numTasks)): the job constraints are
+     * checked task by task, and the tasks of each machine are swept by increasing start time. */
+    private List<Violation> findViolations(int limit) {
+        List<Violation> violations = new ArrayList<>();
+        for(int j = 0 ; j<pb.numJobs && violations.size() < limit ; j++) {
+            for(int t = 0 ; t<pb.numTasks && violations.size() < limit ; t++) {
+                if(startTime(j, t) < 0)
+                    violations.add(new Violation(Violation.Kind.NegativeStart, new Task(j, t), null));
+                else if(t > 0 && endTime(j, t-1) > startTime(j, t))
+                    violations.add(new Violation(Violation.Kind.JobPrecedence, new Task(j, t-1), new Task(j, t)));
             }
         }
 
-        return true;
+        // task with the latest end among the ones already swept on each machine (-1 if none)
+        int[] ids = new int[times.length];
+        tasksByStartTime(ids);
+        int[] latest = new int[pb.numMachines];
+        Arrays.fill(latest, -1);
+        for(int i = 0 ; i < ids.length && violations.size() < limit ; i++) {
+            int job = ids[i] / pb.numTasks;
+            int task = ids[i] % pb.numTasks;
+            int machine = pb.machine(job, task);
+            int previous = latest[machine];
+            if(previous < 0) {
+                latest[machine] = ids[i];
+                continue;
+            }
+            int previousEnd = endTime(previous / pb.numTasks, previous % pb.numTasks);
+            // a task without duration does not overlap a task starting at the same time
+            boolean overlap = startTime(job, task) < previousEnd
+                    && (pb.duration(job, task) > 0 || startTime(job, task) > times[previous]);
+            if(overlap)
+                violations.add(new Violation(Violation.Kind.MachineOverlap,
+                        new Task(previous / pb.numTasks, previous % pb.numTasks), new Task(job, task)));
+            if(endTime(job, task) > previousEnd)
+                latest[machine] = ids[i];
+        }
+        return violations;
     }
 
     public int makespan() {
@@ -71,6 +173,10 @@ public class Schedule {
         return startTime(task) + pb.duration(task.job, task.task);
     }
 
+    public int endTime(int job, int task) {
+        return startTime(job, task) + pb.duration(job, task);
+    }
+
     public boolean isCriticalPath(List<Task> path) {
         if(startTime(path.get(0)) != 0) {
             return false;
@@ -86,55 +192,53 @@ public class Schedule {
     }
 
     public List<Task> criticalPath() {
-        // select task with greatest end time
-        Task ldd = IntStream.range(0, pb.numJobs)
-                .mapToObj(j -> new Task(j, pb.numTasks-1))
-                .max(Comparator.comparing(this::endTime))
-                .get();
+        // select task with greatest end time (the first one in case of ties)
+        Task ldd = new Task(0, pb.numTasks-1);
+        for(int j = 1 ; j < pb.numJobs ; j++) {
+            Task last = new Task(j, pb.numTasks-1);
+            if(endTime(last) > endTime(ldd))
+                ldd = last;
+        }
         assert endTime(ldd) == makespan();
 
         // list that will contain the critical path.
         // we construct it from the end, starting with the
-        // task that finishes last
-        LinkedList<Task> path = new LinkedList<>();
-        path.add(0,ldd);
+        // task that finishes last, and reverse it once complete
+        ArrayList<Task> path = new ArrayList<>();
+        path.add(ldd);
 
         // keep adding tasks to the path until the first task in the path
         // starts a time 0
-        while(startTime(path.getFirst()) != 0) {
-            Task cur = path.getFirst();
+        Task cur = ldd;
+        while(startTime(cur) != 0) {
             int machine = pb.machine(cur.job, cur.task);
 
             // will contain the task that was delaying the start
             // of our current task
-            Optional<Task> latestPredecessor = Optional.empty();
-
-            if(cur.task > 0) {
-                // our current task has a predecessor on the job
-                Task predOnJob = new Task(cur.job, cur.task -1);
+            Task latestPredecessor = null;
 
-                // if it was the delaying task, save it to predecessor
-                if(endTime(predOnJob) == startTime(cur))
-                    latestPredecessor = Optional.of(predOnJob);
+            if(cur.task > 0 && endTime(cur.job, cur.task - 1) == startTime(cur)) {
+                // our current task has a predecessor on the job and it was the delaying task
+                latestPredecessor = new Task(cur.job, cur.task - 1);
             }
-            if(!latestPredecessor.isPresent()) {
-                // no latest predecessor found yet, look among tasks executing on the same machine
-                latestPredecessor = IntStream.range(0, pb.numJobs)
-                        .mapToObj(j -> new Task(j, pb.task_with_machine(j, machine)))
-                        .filter(t -> endTime(t) == startTime(cur))
-                        .findFirst();
+            // no latest predecessor found yet, look among tasks executing on the same machine
+            for(int j = 0 ; j < pb.numJobs && latestPredecessor == null ; j++) {
+                int t = pb.task_with_machine(j, machine);
+                if(endTime(j, t) == startTime(cur))
+                    latestPredecessor = new Task(j, t);
             }
             // at this point we should have identified a latest predecessor, either on the job or on the machine
-            assert latestPredecessor.isPresent() && endTime(latestPredecessor.get()) == startTime(cur);
-            // insert predecessor at the beginning of the path
-            path.add(0, latestPredecessor.get());
+            assert latestPredecessor != null && endTime(latestPredecessor) == startTime(cur);
+            path.add(latestPredecessor);
+            cur = latestPredecessor;
         }
+        Collections.reverse(path);
         assert isCriticalPath(path);
         return path;
     }
     
     public Schedule copy() {
-        return new Schedule(this.pb, this.times);
+        return new Schedule(this.pb, this.times.clone());
     }
     
     /****************************************************************/
@@ -142,10 +246,10 @@ public class Schedule {
     /****************************************************************/
     public String toString() {
     	String res = "";
-    	for (int i = 0; i < this.times.length; i++) {
+    	for (int i = 0; i < this.pb.numJobs; i++) {
     		res += "Job " + Integer.toString(i + 1) + " starting times : \n";
-    		for (int j = 0; j < this.times[i].length; j++) {
-    			res += "\tTask " + Integer.toString(j + 1) + " starts at time : " + Integer.toString(this.times[i][j]) + "\n";
+    		for (int j = 0; j < this.pb.numTasks; j++) {
+    			res += "\tTask " + Integer.toString(j + 1) + " starts at time : " + Integer.toString(this.startTime(i, j)) + "\n";
     		}
     	}
     	return res;
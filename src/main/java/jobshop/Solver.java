@@ -1,7 +1,44 @@
 package jobshop;
 
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
 public interface Solver {
 
     Result solve(Instance instance, long deadline);
 
+    /** Same as solve(instance, deadline), but also calls `onImprovement` (if not null) with each schedule improving
+     * on the previous ones as soon as it is found, so that a good answer is available at any time.
+     * Every solve() method accepts a null `onImprovement`.
+     *
+     * Solvers that do not override this method only report their final schedule. */
+    default Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement) {
+        Result result = solve(instance, deadline);
+        if(result.schedule != null && onImprovement != null) {
+            onImprovement.accept(result.schedule);
+        }
+        return result;
+    }
+
+    /** Same as solve(instance, deadline, onImprovement), also reporting in `metrics` what the solver does.
+     * The returned Result holds a snapshot of the metrics.
+     *
+     * Solvers that do not override this method report nothing. */
+    default Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics) {
+        return solve(instance, deadline, onImprovement);
+    }
+
+    /** Shared makespan of a solver running alone: nothing better than its own schedules. */
+    IntSupplier ALONE = () -> Integer.MAX_VALUE;
+
+    /** Same as solve(instance, deadline, onImprovement, metrics), for a solver running alongside others (see
+     * PortfolioSolver). `shared` gives at any time the makespan of the best schedule found by any of them, including
+     * the ones this solver passed to onImprovement: a solver can skip the work on schedules that cannot improve on it.
+     *
+     * Solvers that do not override this method ignore `shared`. */
+    default Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics,
+                         IntSupplier shared) {
+        return solve(instance, deadline, onImprovement, metrics);
+    }
+
 }
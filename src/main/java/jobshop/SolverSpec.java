@@ -0,0 +1,346 @@
+package jobshop;
+
+import jobshop.solvers.*;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import jobshop.solvers.GreedySolver.PriorityRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Builds solvers from textual specifications, such as `taboo(rule=EST_LRPT,tenure=10,iters=5000,threads=8)`.
+ *
+ * A specification is a solver name, optionally followed by parameters between parentheses. Omitted parameters
+ * take their default value (see USAGE):
+ *   basic
+ *   random(threads=1, seed=0, samples=0)
+ *   greedy(rule=EST_LRPT)
+ *   descent(rule=EST_LRPT, eval=ESTIMATE, nbh=N5)
+ *   taboo(rule=EST_LRPT, tenure=10, iters=1000, eval=ESTIMATE, threads=1, stagnation=0, nbh=N5)
+ *   tsab(rule=EST_LRPT, tenure=8, stagnation=2000, elite=5, iters=0)
+ *   grasp(rule=EST_LRPT, alpha=0.2, starts=0, threads=1, seed=0, nbh=N5)
+ *   portfolio                         the portfolio of Main (taboo EST_LRPT and EST_SPT, descent SPT, random, grasp)
+ *   portfolio(spec, spec, ...)        a portfolio of the given members, e.g. portfolio(taboo(rule=EST_SPT), grasp)
+ * where rule is one of SPT, LRPT, EST_SPT, EST_LRPT, eval one of EXACT, ESTIMATE and nbh one of N5, N6, N7.
+ *
+ * The names used so far are still accepted: Greedy-EST_LRPT, Descent-SPT, Taboo-EST_LRPT(10,1000) (tenure, iters).
+ *
+ * A specification can describe a grid of solvers (see expand()): a parameter can be given several values
+ * separated by '|' (`tenure=6|8|10`), or a range of integers `from..to` or `from..to:step` (`iters=1000..5000:1000`).
+ * A grid describes at most MAX_GRID solvers. The members of a portfolio are not expanded.
+ */
+public class SolverSpec {
+
+    private static final Pattern SPEC = Pattern.compile("\\s*([A-Za-z_]+)\\s*(?:\\((.*)\\))?\\s*");
+    private static final Pattern LEGACY = Pattern.compile("(Greedy|Descent|Taboo)-(\\w+)(?:\\((\\d+),(\\d+)\\))?");
+    private static final Pattern RANGE = Pattern.compile("(-?\\d+)\\.\\.(-?\\d+)(?::(\\d+))?");
+    /** The specifications of all solvers with their default parameters, as listed above, for help messages. */
+    public static final List<String> USAGE = Collections.unmodifiableList(Arrays.asList(
+            "basic",
+            "random(threads=1, seed=0, samples=0)",
+            "greedy(rule=EST_LRPT)",
+            "descent(rule=EST_LRPT, eval=ESTIMATE, nbh=N5)",
+            "taboo(rule=EST_LRPT, tenure=10, iters=1000, eval=ESTIMATE, threads=1, stagnation=0, nbh=N5)",
+            "tsab(rule=EST_LRPT, tenure=8, stagnation=2000, elite=5, iters=0)",
+            "grasp(rule=EST_LRPT, alpha=0.2, starts=0, threads=1, seed=0, nbh=N5)",
+            "portfolio",
+            "portfolio(taboo(rule=EST_LRPT, iters=5000), tsab, grasp(alpha=0.2))",
+            "where rule is one of SPT, LRPT, EST_SPT, EST_LRPT, eval one of EXACT, ESTIMATE and nbh one of N5, N6, N7"));
+
+    /** Largest number of solvers a grid may describe. */
+    static final int MAX_GRID = 10000;
+
+    private SolverSpec() {}
+
+    /** Expands a specification into the specifications of all the solvers of its grid, in their natural order
+     * (the first parameter varies the slowest). A specification without alternative values expands to itself. */
+    public static List<String> expand(String spec) {
+        if(LEGACY.matcher(spec).matches()) {
+            return Collections.singletonList(spec);
+        }
+        Matcher m = matchSpec(spec);
+        String name = m.group(1);
+        if(m.group(2) == null || isPortfolio(name)) {
+            return Collections.singletonList(spec.trim());
+        }
+
+        List<String> specs = new ArrayList<>();
+        specs.add("");
+        for(Map.Entry<String, String> param : parameters(spec, m.group(2)).entrySet()) {
+            List<String> values = values(spec, param.getValue());
+            if((long) specs.size() * values.size() > MAX_GRID) {
+                throw new IllegalArgumentException("More than " + MAX_GRID + " solvers in the grid " + spec);
+            }
+            List<String> extended = new ArrayList<>(specs.size() * values.size());
+            for(String prefix : specs) {
+                for(String value : values) {
+                    extended.add(prefix + (prefix.isEmpty() ? "" : ",") + param.getKey() + "=" + value);
+                }
+            }
+            specs = extended;
+        }
+        List<String> res = new ArrayList<>(specs.size());
+        for(String params : specs) {
+            res.add(name + "(" + params + ")");
+        }
+        return res;
+    }
+
+    /** Builds the solver described by a specification without alternative values.
+     * @throws IllegalArgumentException if the specification is not valid. */
+    public static Solver parse(String spec) {
+        Matcher legacy = LEGACY.matcher(spec);
+        if(legacy.matches()) {
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("rule", legacy.group(2));
+            if(legacy.group(3) != null) {
+                params.put("tenure", legacy.group(3));
+                params.put("iters", legacy.group(4));
+            }
+            return build(spec, legacy.group(1).toLowerCase(Locale.ROOT), params);
+        }
+        Matcher m = matchSpec(spec);
+        if(isPortfolio(m.group(1)) && m.group(2) != null && !m.group(2).trim().isEmpty()) {
+            List<String> members = members(spec, m.group(2));
+            Solver[] solvers = new Solver[members.size()];
+            for(int i = 0 ; i < solvers.length ; i++) {
+                solvers[i] = parse(members.get(i));
+            }
+            return new PortfolioSolver(solvers);
+        }
+        Map<String, String> params = m.group(2) == null ? new LinkedHashMap<>() : parameters(spec, m.group(2));
+        return build(spec, m.group(1).toLowerCase(Locale.ROOT), params);
+    }
+
+    private static Solver build(String spec, String name, Map<String, String> params) {
+        Solver solver;
+        switch(name) {
+            case "basic":
+                solver = new BasicSolver();
+                break;
+            case "random": {
+                int threads = integer(spec, "threads", params.remove("threads"), 1);
+                int seed = integer(spec, "seed", params.remove("seed"), 0);
+                int samples = integer(spec, "samples", params.remove("samples"), 0);
+                solver = new RandomSolver(threads, seed, samples);
+                break;
+            }
+            case "portfolio":
+                solver = new PortfolioSolver(
+                        new TabooSolver(PriorityESTRule.EST_LRPT, 10, 5000),
+                        new TabooSolver(PriorityESTRule.EST_SPT, 10, 5000),
+                        new DescentSolver(PriorityRule.SPT),
+                        new RandomSolver(),
+                        new GraspSolver(PriorityESTRule.EST_LRPT, 0.2));
+                break;
+            case "greedy": {
+                Object rule = rule(spec, params.remove("rule"));
+                solver = rule instanceof PriorityRule
+                        ? new GreedySolver((PriorityRule) rule)
+                        : new GreedySolver((PriorityESTRule) rule);
+                break;
+            }
+            case "descent": {
+                Object rule = rule(spec, params.remove("rule"));
+                SwapEvaluator.Mode eval = mode(spec, params.remove("eval"));
+                Neighborhood nbh = neighborhood(spec, params.remove("nbh"));
+                solver = rule instanceof PriorityRule
+                        ? new DescentSolver((PriorityRule) rule, eval, nbh)
+                        : new DescentSolver((PriorityESTRule) rule, eval, nbh);
+                break;
+            }
+            case "taboo": {
+                Object rule = rule(spec, params.remove("rule"));
+                int tenure = integer(spec, "tenure", params.remove("tenure"), 10);
+                int iters = integer(spec, "iters", params.remove("iters"), 1000);
+                SwapEvaluator.Mode eval = mode(spec, params.remove("eval"));
+                int threads = integer(spec, "threads", params.remove("threads"), 1);
+                int stagnation = integer(spec, "stagnation", params.remove("stagnation"), 0);
+                Neighborhood nbh = neighborhood(spec, params.remove("nbh"));
+                solver = rule instanceof PriorityRule
+                        ? new TabooSolver((PriorityRule) rule, tenure, iters, eval, threads, stagnation, nbh)
+                        : new TabooSolver((PriorityESTRule) rule, tenure, iters, eval, threads, stagnation, nbh);
+                break;
+            }
+            case "tsab": {
+                Object rule = rule(spec, params.remove("rule"));
+                int tenure = integer(spec, "tenure", params.remove("tenure"), 8);
+                int stagnation = integer(spec, "stagnation", params.remove("stagnation"), 2000);
+                int elite = integer(spec, "elite", params.remove("elite"), 5);
+                int iters = integer(spec, "iters", params.remove("iters"), 0);
+                solver = rule instanceof PriorityRule
+                        ? new TsabSolver((PriorityRule) rule, tenure, stagnation, elite, iters)
+                        : new TsabSolver((PriorityESTRule) rule, tenure, stagnation, elite, iters);
+                break;
+            }
+            case "grasp": {
+                Object rule = rule(spec, params.remove("rule"));
+                double alpha = decimal(spec, "alpha", params.remove("alpha"), 0.2);
+                int starts = integer(spec, "starts", params.remove("starts"), 0);
+                int threads = integer(spec, "threads", params.remove("threads"), 1);
+                int seed = integer(spec, "seed", params.remove("seed"), 0);
+                Neighborhood nbh = neighborhood(spec, params.remove("nbh"));
+                solver = rule instanceof PriorityRule
+                        ? new GraspSolver((PriorityRule) rule, alpha, starts, threads, seed, nbh)
+                        : new GraspSolver((PriorityESTRule) rule, alpha, starts, threads, seed, nbh);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown solver \"" + name + "\" in " + spec);
+        }
+        if(!params.isEmpty()) {
+            throw new IllegalArgumentException("Unknown parameter(s) " + params.keySet() + " in " + spec);
+        }
+        return solver;
+    }
+
+    private static Matcher matchSpec(String spec) {
+        Matcher m = SPEC.matcher(spec);
+        if(!m.matches()) {
+            throw new IllegalArgumentException("Invalid solver specification: " + spec);
+        }
+        return m;
+    }
+
+    private static boolean isPortfolio(String name) {
+        return name.toLowerCase(Locale.ROOT).equals("portfolio");
+    }
+
+    /** The specifications of the members of a portfolio, separated by the commas outside of parentheses. */
+    private static List<String> members(String spec, String list) {
+        List<String> members = new ArrayList<>();
+        int depth = 0;
+        int from = 0;
+        for(int i = 0 ; i <= list.length() ; i++) {
+            char c = i < list.length() ? list.charAt(i) : ',';
+            if(c == '(') {
+                depth++;
+            } else if(c == ')') {
+                depth--;
+            }
+            if(depth < 0 || (i == list.length() && depth != 0)) {
+                throw new IllegalArgumentException("Unbalanced parentheses in " + spec);
+            }
+            if(c == ',' && depth == 0) {
+                String member = list.substring(from, i).trim();
+                if(member.isEmpty()) {
+                    throw new IllegalArgumentException("Empty portfolio member in " + spec);
+                }
+                members.add(member);
+                from = i + 1;
+            }
+        }
+        return members;
+    }
+
+    /** The parameters key=value of a specification, in their order. */
+    private static Map<String, String> parameters(String spec, String list) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if(list.trim().isEmpty()) {
+            return params;
+        }
+        for(String param : list.split(",")) {
+            int eq = param.indexOf('=');
+            if(eq < 0) {
+                throw new IllegalArgumentException("Parameter without value \"" + param.trim() + "\" in " + spec);
+            }
+            String key = param.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+            if(params.put(key, param.substring(eq + 1).trim()) != null) {
+                throw new IllegalArgumentException("Parameter \"" + key + "\" given twice in " + spec);
+            }
+        }
+        return params;
+    }
+
+    /** All the values of a parameter: alternatives separated by '|' and integer ranges. */
+    private static List<String> values(String spec, String values) {
+        List<String> res = new ArrayList<>();
+        for(String value : values.split("\\|")) {
+            value = value.trim();
+            Matcher range = RANGE.matcher(value);
+            if(range.matches()) {
+                int from = Integer.parseInt(range.group(1));
+                int to = Integer.parseInt(range.group(2));
+                int step = range.group(3) == null ? 1 : Integer.parseInt(range.group(3));
+                if(step <= 0 || from > to) {
+                    throw new IllegalArgumentException("Invalid range \"" + value + "\" in " + spec);
+                }
+                if(((long) to - from) / step + 1 > MAX_GRID) {
+                    throw new IllegalArgumentException("More than " + MAX_GRID + " values in the range \"" + value + "\" in " + spec);
+                }
+                // long, so that the last step cannot overflow
+                for(long v = from ; v <= to ; v += step) {
+                    res.add(Long.toString(v));
+                }
+            } else if(value.isEmpty()) {
+                throw new IllegalArgumentException("Empty parameter value in " + spec);
+            } else {
+                res.add(value);
+            }
+        }
+        return res;
+    }
+
+    /** A PriorityRule or a PriorityESTRule, EST_LRPT by default. */
+    private static Object rule(String spec, String rule) {
+        if(rule == null) {
+            return PriorityESTRule.EST_LRPT;
+        }
+        String name = rule.toUpperCase(Locale.ROOT);
+        try {
+            return name.startsWith("EST_") ? PriorityESTRule.valueOf(name) : PriorityRule.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown rule \"" + rule + "\" in " + spec + " (SPT, LRPT, EST_SPT or EST_LRPT)");
+        }
+    }
+
+    private static SwapEvaluator.Mode mode(String spec, String mode) {
+        if(mode == null) {
+            return SwapEvaluator.Mode.ESTIMATE;
+        }
+        try {
+            return SwapEvaluator.Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown evaluation \"" + mode + "\" in " + spec + " (EXACT or ESTIMATE)");
+        }
+    }
+
+    private static Neighborhood neighborhood(String spec, String nbh) {
+        if(nbh == null) {
+            return Neighborhood.N5;
+        }
+        try {
+            return Neighborhood.valueOf(nbh.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown neighborhood \"" + nbh + "\" in " + spec + " (N5, N6 or N7)");
+        }
+    }
+
+    private static int integer(String spec, String key, String value, int defaultValue) {
+        if(value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter \"" + key + "\" must be an integer in " + spec);
+        }
+    }
+
+    private static double decimal(String spec, String key, String value, double defaultValue) {
+        if(value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter \"" + key + "\" must be a number in " + spec);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package jobshop.encodings;
+
+import jobshop.Instance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Disjunctive graph of an instance, used to decode resource orders in linear time.
+ *
+ * The conjunctive arcs (between consecutive tasks of a job) are precomputed from the instance.
+ * The disjunctive arcs (between consecutive tasks of a machine) are given by the sequence of task ids
+ * passed to decode(), in the same layout as PackedResourceOrder.tasks.
+ *
+ * Decoding is Kahn's algorithm: a task is scheduled as soon as all its predecessors are, which takes
+ * O(numJobs * numTasks). If some tasks can never be scheduled, the order contains a cycle that can be
+ * retrieved with cycle().
+ *
+ * Buffers are reused between calls, so a graph must not be shared between threads.
+ */
+public class DisjunctiveGraph {
+
+    public final Instance instance;
+
+    private final int numJobs;
+    private final int numTasks;
+    private final int size;
+
+    // duration of each task id
+    private final int[] duration;
+
+    // disjunctive arcs of the last decoded order (-1 if none)
+    private final int[] machinePred;
+    private final int[] machineSucc;
+
+    // Kahn's algorithm state
+    private final int[] inDegree;
+    private final int[] queue;
+    private int numScheduled;
+
+    public DisjunctiveGraph(Instance instance) {
+        this.instance = instance;
+        this.numJobs = instance.numJobs;
+        this.numTasks = instance.numTasks;
+        this.size = numJobs * numTasks;
+
+        duration = new int[size];
+        for(int j = 0 ; j < numJobs ; j++) {
+            for(int t = 0 ; t < numTasks ; t++) {
+                duration[j * numTasks + t] = instance.duration(j, t);
+            }
+        }
+        machinePred = new int[size];
+        machineSucc = new int[size];
+        inDegree = new int[size];
+        queue = new int[size];
+    }
+
+    /** Computes the earliest start time of every task for the given machine sequences.
+     * startTimes[id] is set for every scheduled task id (the layout of Schedule.wrap()).
+     * @return true if all tasks were scheduled, false if the sequences contain a cycle. */
+    public boolean decode(int[] sequence, int[] startTimes) {
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            int prev = -1;
+            for(int i = 0 ; i < numJobs ; i++) {
+                int id = sequence[m * numJobs + i];
+                machinePred[id] = prev;
+                if(prev >= 0)
+                    machineSucc[prev] = id;
+                prev = id;
+            }
+            machineSucc[prev] = -1;
+        }
+
+        int tail = 0;
+        for(int id = 0 ; id < size ; id++) {
+            inDegree[id] = (id % numTasks > 0 ? 1 : 0) + (machinePred[id] >= 0 ? 1 : 0);
+            if(inDegree[id] == 0)
+                queue[tail++] = id;
+        }
+
+        int head = 0;
+        while(head < tail) {
+            int id = queue[head++];
+            int task = id % numTasks;
+
+            int est = task == 0 ? 0 : startTimes[id-1] + duration[id-1];
+            int mp = machinePred[id];
+            if(mp >= 0)
+                est = Math.max(est, startTimes[mp] + duration[mp]);
+            startTimes[id] = est;
+
+            if(task < numTasks - 1 && --inDegree[id + 1] == 0)
+                queue[tail++] = id + 1;
+            int ms = machineSucc[id];
+            if(ms >= 0 && --inDegree[ms] == 0)
+                queue[tail++] = ms;
+        }
+        numScheduled = tail;
+        return numScheduled == size;
+    }
+
+    /** Makespan of the start times written by the last (feasible) call to decode(). */
+    public int makespan(int[] startTimes) {
+        int makespan = 0;
+        for(int j = 0 ; j < numJobs ; j++) {
+            int last = j * numTasks + numTasks - 1;
+            makespan = Math.max(makespan, startTimes[last] + duration[last]);
+        }
+        return makespan;
+    }
+
+    /** Returns a cycle of the last decoded order, in execution order (each task must precede the next one
+     * and the last must precede the first). Returns an empty list if the last decoded order was feasible. */
+    public List<Task> cycle() {
+        if(numScheduled == size) {
+            return Collections.emptyList();
+        }
+        // every unscheduled task has an unscheduled predecessor: walk backward until a task is met twice
+        int current = -1;
+        for(int id = 0 ; id < size && current < 0 ; id++) {
+            if(inDegree[id] > 0)
+                current = id;
+        }
+        boolean[] visited = new boolean[size];
+        while(!visited[current]) {
+            visited[current] = true;
+            current = unscheduledPredecessor(current);
+        }
+
+        List<Task> cycle = new ArrayList<>();
+        int first = current;
+        do {
+            cycle.add(new Task(current / numTasks, current % numTasks));
+            current = unscheduledPredecessor(current);
+        } while(current != first);
+        Collections.reverse(cycle);
+        return cycle;
+    }
+
+    /** A predecessor (on the job or on the machine) of an unscheduled task that was not scheduled either. */
+    private int unscheduledPredecessor(int id) {
+        if(id % numTasks > 0 && inDegree[id - 1] > 0)
+            return id - 1;
+        return machinePred[id];
+    }
+}
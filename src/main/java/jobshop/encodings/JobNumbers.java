@@ -5,8 +5,6 @@ import jobshop.Instance;
 import jobshop.Schedule;
 
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.stream.IntStream;
 
 /** Représentation par numéro de job. */
 public class JobNumbers extends Encoding {
@@ -18,6 +16,13 @@ public class JobNumbers extends Encoding {
      * element of `jobs` that has not been set yet. */
     public int nextToSet = 0;
 
+    // time at which each machine is going to be freed, first task of each job that has not yet been scheduled
+    // and end of the last scheduled task of each job, created on first decoding.
+    // Decoding reuses them, so an encoding must not be decoded by several threads at once.
+    private int[] nextFreeTimeResource;
+    private int[] nextTask;
+    private int[] jobEnd;
+
     public JobNumbers(Instance instance) {
         super(instance);
 
@@ -26,55 +31,77 @@ public class JobNumbers extends Encoding {
     }
 
     public JobNumbers(Schedule schedule) {
-        super(schedule.pb);
-
-        this.jobs = new int[instance.numJobs * instance.numTasks];
-
-        // for each job indicates which is the next task to be scheduled
-        int[] nextOnJob = new int[instance.numJobs];
-
-        while(Arrays.stream(nextOnJob).anyMatch(t -> t < instance.numTasks)) {
-            Task next = IntStream
-                    // for all jobs numbers
-                    .range(0, instance.numJobs)
-                    // build the next task for this job
-                    .mapToObj(j -> new Task(j, nextOnJob[j]))
-                    // only keep valid tasks (some jobs have no task left to be executed)
-                    .filter(t -> t.task < instance.numTasks)
-                    // select the task with the earliest execution time
-                    .min(Comparator.comparing(t -> schedule.startTime(t.job, t.task)))
-                    .get();
-
-            this.jobs[nextToSet++] = next.job;
-            nextOnJob[next.job] += 1;
+        this(schedule.pb);
+        load(schedule);
+    }
+
+    /** Overwrites this encoding with the tasks of the schedule by increasing start time (ties by job).
+     * The schedule must be valid and on the same instance. */
+    public void load(Schedule schedule) {
+        assert schedule.pb == instance;
+        // the ids are sorted in place, then replaced by their job
+        schedule.tasksByStartTime(jobs);
+        for(int i = 0 ; i < jobs.length ; i++) {
+            jobs[i] /= instance.numTasks;
         }
+        nextToSet = jobs.length;
     }
 
     @Override
     public Schedule toSchedule() {
-        // time at which each machine is going to be freed
-        int[] nextFreeTimeResource = new int[instance.numMachines];
-
-        // for each job, the first task that has not yet been scheduled
-        int[] nextTask = new int[instance.numJobs];
-
-        // for each task, its start time
-        int[][] startTimes = new int[instance.numJobs][instance.numTasks];
+        int[] startTimes = new int[instance.numJobs * instance.numTasks];
+        decodeInto(startTimes);
+        return Schedule.wrap(instance, startTimes);
+    }
 
+    @Override
+    public int decodeInto(int[] startTimes) {
+        buffers();
+        int makespan = 0;
         // compute the earliest start time for every task of every job
         for(int job : jobs) {
-            int task = nextTask[job];
+            int task = nextTask[job]++;
             int machine = instance.machine(job, task);
             // earliest start time for this task
-            int est = task == 0 ? 0 : startTimes[job][task-1] + instance.duration(job, task-1);
-            est = Math.max(est, nextFreeTimeResource[machine]);
+            int est = Math.max(jobEnd[job], nextFreeTimeResource[machine]);
+            int end = est + instance.duration(job, task);
 
-            startTimes[job][task] = est;
-            nextFreeTimeResource[machine] = est + instance.duration(job, task);
-            nextTask[job] = task + 1;
+            startTimes[job * instance.numTasks + task] = est;
+            jobEnd[job] = end;
+            nextFreeTimeResource[machine] = end;
+            makespan = Math.max(makespan, end);
         }
+        return makespan;
+    }
 
-        return new Schedule(instance, startTimes);
+    /** Makespan of the schedule toSchedule() builds, computed without building it nor allocating
+     * (after the first call). */
+    @Override
+    public int makespan() {
+        buffers();
+        int makespan = 0;
+        for(int job : jobs) {
+            int task = nextTask[job]++;
+            int machine = instance.machine(job, task);
+            int end = Math.max(jobEnd[job], nextFreeTimeResource[machine]) + instance.duration(job, task);
+            jobEnd[job] = end;
+            nextFreeTimeResource[machine] = end;
+            makespan = Math.max(makespan, end);
+        }
+        return makespan;
+    }
+
+    /** Creates the decoding buffers on first use, and clears them. */
+    private void buffers() {
+        if(jobEnd == null) {
+            nextFreeTimeResource = new int[instance.numMachines];
+            nextTask = new int[instance.numJobs];
+            jobEnd = new int[instance.numJobs];
+        } else {
+            Arrays.fill(nextFreeTimeResource, 0);
+            Arrays.fill(nextTask, 0);
+            Arrays.fill(jobEnd, 0);
+        }
     }
 
     @Override
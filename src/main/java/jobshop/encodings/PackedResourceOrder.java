@@ -0,0 +1,190 @@
+package jobshop.encodings;
+
+import jobshop.Encoding;
+import jobshop.Instance;
+import jobshop.Schedule;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Resource order stored as a single flat array of task ids, with no Task object.
+ *
+ * The id of a task is job * numTasks + task. The tasks executed on machine m are stored,
+ * in order, in tasks[m * numJobs] ... tasks[m * numJobs + numJobs - 1].
+ *
+ * All buffers needed for decoding are allocated once with the encoding: copying, swapping and decoding
+ * do not allocate (except for the start times of the Schedule returned by toSchedule()). As a consequence an instance of
+ * this class must not be shared between threads.
+ */
+public class PackedResourceOrder extends Encoding {
+
+    /** Ids of the tasks, machine after machine, in their execution order on the machine. */
+    public final int[] tasks;
+
+    private final int numJobs;
+    private final int numTasks;
+
+    // graph and scratch buffer used when decoding (and when loading a schedule)
+    private final DisjunctiveGraph graph;
+    private final int[] startTimes;
+    // number of tasks already loaded on each machine
+    private final int[] nextFreeSlot;
+
+    /** Creates a packed resource order where every machine executes the jobs in increasing order. */
+    public PackedResourceOrder(Instance instance) {
+        super(instance);
+        this.numJobs = instance.numJobs;
+        this.numTasks = instance.numTasks;
+
+        tasks = new int[instance.numMachines * numJobs];
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int j = 0 ; j < numJobs ; j++) {
+                tasks[m * numJobs + j] = id(j, instance.task_with_machine(j, m));
+            }
+        }
+
+        graph = new DisjunctiveGraph(instance);
+        startTimes = new int[numJobs * numTasks];
+        nextFreeSlot = new int[instance.numMachines];
+    }
+
+    /** Creates a packed copy of the given (complete) resource order. */
+    public PackedResourceOrder(ResourceOrder order) {
+        this(order.instance);
+        load(order);
+    }
+
+    /** Creates the packed resource order of a schedule (see load(Schedule)). */
+    public PackedResourceOrder(Schedule schedule) {
+        this(schedule.pb);
+        load(schedule);
+    }
+
+    public int id(int job, int task) {
+        return job * numTasks + task;
+    }
+
+    public int job(int id) {
+        return id / numTasks;
+    }
+
+    public int task(int id) {
+        return id % numTasks;
+    }
+
+    /** Id of the task executed in the given position on the machine. */
+    public int taskAt(int machine, int index) {
+        return tasks[machine * numJobs + index];
+    }
+
+    /** Swaps the tasks in positions index1 and index2 on the machine. */
+    public void swap(int machine, int index1, int index2) {
+        int i1 = machine * numJobs + index1;
+        int i2 = machine * numJobs + index2;
+        int tmp = tasks[i1];
+        tasks[i1] = tasks[i2];
+        tasks[i2] = tmp;
+    }
+
+    /** Moves the task in position `from` to position `to` on the machine, shifting the tasks in between. */
+    public void move(int machine, int from, int to) {
+        int base = machine * numJobs;
+        int moved = tasks[base + from];
+        if(from < to) {
+            System.arraycopy(tasks, base + from + 1, tasks, base + from, to - from);
+        } else {
+            System.arraycopy(tasks, base + to, tasks, base + to + 1, from - to);
+        }
+        tasks[base + to] = moved;
+    }
+
+    /** Overwrites this order with the content of the given (complete) resource order. */
+    public void load(ResourceOrder order) {
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int i = 0 ; i < numJobs ; i++) {
+                Task t = order.tasksByMachine[m][i];
+                tasks[m * numJobs + i] = id(t.job, t.task);
+            }
+        }
+    }
+
+    /** Overwrites this order with the one of the schedule: each machine executes its tasks by increasing start time
+     * (ties by job). The schedule must be on the same instance. */
+    public void load(Schedule schedule) {
+        assert schedule.pb == instance;
+        // the decoding buffer holds the sorted ids
+        schedule.tasksByStartTime(startTimes);
+        Arrays.fill(nextFreeSlot, 0);
+        for(int id : startTimes) {
+            int machine = instance.machine(job(id), task(id));
+            tasks[machine * numJobs + nextFreeSlot[machine]++] = id;
+        }
+    }
+
+    /** Overwrites the target with the content of this order. Both must be on the same instance. */
+    public void copyInto(PackedResourceOrder target) {
+        assert target.instance == this.instance;
+        System.arraycopy(this.tasks, 0, target.tasks, 0, tasks.length);
+    }
+
+    /** Creates an exact copy of this resource order. */
+    public PackedResourceOrder copy() {
+        PackedResourceOrder copy = new PackedResourceOrder(instance);
+        copyInto(copy);
+        return copy;
+    }
+
+    /** Converts back to the Task based representation. */
+    public ResourceOrder toResourceOrder() {
+        ResourceOrder order = new ResourceOrder(instance);
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int i = 0 ; i < numJobs ; i++) {
+                int id = taskAt(m, i);
+                order.tasksByMachine[m][i] = new Task(job(id), task(id));
+            }
+            order.nextFreeSlot[m] = numJobs;
+        }
+        return order;
+    }
+
+    @Override
+    public Schedule toSchedule() {
+        int[] times = new int[numJobs * numTasks];
+        if(!graph.decode(tasks, times)) {
+            // there is no solution for this resource ordering
+            return null;
+        }
+        return Schedule.wrap(instance, times);
+    }
+
+    @Override
+    public int makespan() {
+        return decodeInto(startTimes);
+    }
+
+    @Override
+    public int decodeInto(int[] startTimes) {
+        return graph.decode(tasks, startTimes) ? graph.makespan(startTimes) : INFEASIBLE;
+    }
+
+    /** Returns a cycle of precedences that makes this order infeasible (see ResourceOrder.findCycle()).
+     * Returns an empty list if the order is feasible. */
+    public List<Task> findCycle() {
+        graph.decode(tasks, startTimes);
+        return graph.cycle();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder res = new StringBuilder();
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            res.append("Machine number : ").append(m + 1).append("\n");
+            for(int i = 0 ; i < numJobs ; i++) {
+                int id = taskAt(m, i);
+                res.append("\tUse number ").append(i + 1).append(" : ")
+                        .append(new Task(job(id), task(id)).add_one()).append("\n");
+            }
+        }
+        return res.toString();
+    }
+}
@@ -4,9 +4,8 @@ import jobshop.Encoding;
 import jobshop.Instance;
 import jobshop.Schedule;
 
-import java.util.Comparator;
-import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Arrays;
+import java.util.List;
 
 public class ResourceOrder extends Encoding {
 
@@ -17,6 +16,12 @@ public class ResourceOrder extends Encoding {
     // for each machine, indicate on many tasks have been initialized
     public final int[] nextFreeSlot;
 
+    // graph, sequence of task ids and start times used for decoding, created on first use.
+    // Decoding reuses them, so a resource order must not be decoded by several threads at once.
+    private DisjunctiveGraph graph;
+    private int[] sequence;
+    private int[] scratchStartTimes;
+
     /** Creates a new empty resource order. */
     public ResourceOrder(Instance instance)
     {
@@ -32,83 +37,89 @@ public class ResourceOrder extends Encoding {
     /** Creates a resource order from a schedule. */
     public ResourceOrder(Schedule schedule)
     {
-        super(schedule.pb);
-        Instance pb = schedule.pb;
-
-        this.tasksByMachine = new Task[pb.numMachines][];
-        this.nextFreeSlot = new int[instance.numMachines];
-
-        for(int m = 0 ; m<schedule.pb.numMachines ; m++) {
-            final int machine = m;
+        this(schedule.pb);
+        load(schedule);
+    }
 
-            // for thi machine, find all tasks that are executed on it and sort them by their start time
-            tasksByMachine[m] =
-                    IntStream.range(0, pb.numJobs) // all job numbers
-                            .mapToObj(j -> new Task(j, pb.task_with_machine(j, machine))) // all tasks on this machine (one per job)
-                            .sorted(Comparator.comparing(t -> schedule.startTime(t.job, t.task))) // sorted by start time
-                            .toArray(Task[]::new); // as new array and store in tasksByMachine
+    /** Overwrites this order with the one of the schedule: each machine executes its tasks by increasing start time
+     * (ties by job). The schedule must be on the same instance. */
+    public void load(Schedule schedule) {
+        assert schedule.pb == instance;
+        if(scratchStartTimes == null) {
+            scratchStartTimes = new int[instance.numJobs * instance.numTasks];
+        }
+        // the decoding buffer holds the sorted ids
+        schedule.tasksByStartTime(scratchStartTimes);
+        Arrays.fill(nextFreeSlot, 0);
+        for(int id : scratchStartTimes) {
+            int job = id / instance.numTasks;
+            int task = id % instance.numTasks;
+            int machine = instance.machine(job, task);
+            tasksByMachine[machine][nextFreeSlot[machine]++] = new Task(job, task);
+        }
+    }
 
-            // indicate that all tasks have been initialized for machine m
-            nextFreeSlot[m] = instance.numJobs;
+    /** Loads the current order in the disjunctive graph and computes the start time of each task.
+     * Returns false if the order contains a cycle. */
+    private boolean decode(int[] startTimes) {
+        if(graph == null) {
+            graph = new DisjunctiveGraph(instance);
+            sequence = new int[instance.numMachines * instance.numJobs];
+        }
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int i = 0 ; i < instance.numJobs ; i++) {
+                Task t = tasksByMachine[m][i];
+                sequence[m * instance.numJobs + i] = t.job * instance.numTasks + t.task;
+            }
         }
+        return graph.decode(sequence, startTimes);
     }
 
+    /** Returns the schedule of this resource order, or null if there is no solution for this resource ordering
+     * (use findCycle() to know why). */
     @Override
     public Schedule toSchedule() {
         // indicate for each task that have been scheduled, its start time
-        int [][] startTimes = new int [instance.numJobs][instance.numTasks];
-
-        // for each job, how many tasks have been scheduled (0 initially)
-        int[] nextToScheduleByJob = new int[instance.numJobs];
-
-        // for each machine, how many tasks have been scheduled (0 initially)
-        int[] nextToScheduleByMachine = new int[instance.numMachines];
-
-        // for each machine, earliest time at which the machine can be used
-        int[] releaseTimeOfMachine = new int[instance.numMachines];
-
-
-        // loop while there remains a job that has unscheduled tasks
-        while(IntStream.range(0, instance.numJobs).anyMatch(m -> nextToScheduleByJob[m] < instance.numTasks)) {
-
-            // selects a task that has noun scheduled predecessor on its job and machine :
-            //  - it is the next to be schedule on a machine
-            //  - it is the next to be scheduled on its job
-            // if there is no such task, we have cyclic dependency and the solution is invalid
-            Optional<Task> schedulable =
-                    IntStream.range(0, instance.numMachines) // all machines ...
-                    .filter(m -> nextToScheduleByMachine[m] < instance.numJobs) // ... with unscheduled jobs
-                    .mapToObj(m -> this.tasksByMachine[m][nextToScheduleByMachine[m]]) // tasks that are next to schedule on a machine ...
-                    .filter(task -> task.task == nextToScheduleByJob[task.job])  // ... and on their job
-                    .findFirst(); // select the first one if any
-
-            if(schedulable.isPresent()) {
-                // we found a schedulable task, lets call it t
-                Task t = schedulable.get();
-                int machine = instance.machine(t.job, t.task);
-
-                // compute the earliest start time (est) of the task
-                int est = t.task == 0 ? 0 : startTimes[t.job][t.task-1] + instance.duration(t.job, t.task-1);
-                est = Math.max(est, releaseTimeOfMachine[instance.machine(t)]);
-                startTimes[t.job][t.task] = est;
-
-                // mark the task as scheduled
-                nextToScheduleByJob[t.job]++;
-                nextToScheduleByMachine[machine]++;
-                // increase the release time of the machine
-                releaseTimeOfMachine[machine] = est + instance.duration(t.job, t.task);
-            } else {
-                // no tasks are schedulable, there is no solution for this resource ordering
-                return null;
-            }
+        int[] startTimes = new int[instance.numJobs * instance.numTasks];
+
+        if(!decode(startTimes)) {
+            // no tasks are schedulable, there is no solution for this resource ordering
+            return null;
         }
-        // we exited the loop : all tasks have been scheduled successfully
-        return new Schedule(instance, startTimes);
+        // all tasks have been scheduled successfully
+        return Schedule.wrap(instance, startTimes);
+    }
+
+    /** Same as toSchedule().makespan() (INFEASIBLE if there is no solution), without allocating after the first call. */
+    @Override
+    public int makespan() {
+        if(scratchStartTimes == null) {
+            scratchStartTimes = new int[instance.numJobs * instance.numTasks];
+        }
+        return decodeInto(scratchStartTimes);
+    }
+
+    @Override
+    public int decodeInto(int[] startTimes) {
+        return decode(startTimes) ? graph.makespan(startTimes) : INFEASIBLE;
+    }
+
+    /** Returns a cycle of precedences that makes this order infeasible, each task of the list having to be executed
+     * before the next one and the last one before the first. Returns an empty list if the order is feasible. */
+    public List<Task> findCycle() {
+        makespan();
+        return graph.cycle();
     }
 
     /** Creates an exact copy of this resource order. */
     public ResourceOrder copy() {
-        return new ResourceOrder(this.toSchedule());
+        ResourceOrder copy = new ResourceOrder(this.instance);
+        // tasks are immutable, copying the rows is enough
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            System.arraycopy(this.tasksByMachine[m], 0, copy.tasksByMachine[m], 0, instance.numJobs);
+            copy.nextFreeSlot[m] = this.nextFreeSlot[m];
+        }
+        return copy;
     }
 	
 	@Override
@@ -2,6 +2,7 @@ package jobshop.solvers;
 
 import jobshop.Instance;
 import jobshop.Result;
+import jobshop.Schedule;
 import jobshop.Solver;
 import jobshop.encodings.JobNumbers;
 
@@ -16,6 +17,9 @@ public class BasicSolver implements Solver {
             }
         }
 
-        return new Result(instance, sol.toSchedule(), Result.ExitCause.Blocked);
+        Schedule schedule = sol.toSchedule();
+        Result.ExitCause exitCause = schedule.makespan() <= instance.lowerBound().value()
+                ? Result.ExitCause.ProvedOptimal : Result.ExitCause.Blocked;
+        return new Result(instance, schedule, exitCause);
     }
 }
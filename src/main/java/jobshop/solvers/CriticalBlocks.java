@@ -0,0 +1,75 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.solvers.DescentSolver.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The blocks of a critical path, stored as primitive ranges (machine, firstTask, lastTask) with the same
+ * meaning as in Block. Blocks are sorted by machine, then by position on the machine.
+ *
+ * Filled by SwapEvaluator.criticalBlocks(), and reused from one iteration to the next.
+ */
+public class CriticalBlocks {
+
+    private final int[] machine;
+    private final int[] firstTask;
+    private final int[] lastTask;
+    private int size;
+
+    public CriticalBlocks(Instance instance) {
+        // each block holds at least two tasks of the critical path
+        int capacity = instance.numJobs * instance.numTasks / 2 + 1;
+        machine = new int[capacity];
+        firstTask = new int[capacity];
+        lastTask = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int machine(int i) {
+        return machine[i];
+    }
+
+    public int firstTask(int i) {
+        return firstTask[i];
+    }
+
+    public int lastTask(int i) {
+        return lastTask[i];
+    }
+
+    /** The i-th block as a Block object. */
+    public Block block(int i) {
+        return new Block(machine[i], firstTask[i], lastTask[i]);
+    }
+
+    public List<Block> toList() {
+        List<Block> blocks = new ArrayList<>(size);
+        for(int i = 0 ; i < size ; i++) {
+            blocks.add(block(i));
+        }
+        return blocks;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /** Inserts a block, keeping the blocks sorted (there are few blocks, insertion is cheap). */
+    void add(int m, int first, int last) {
+        int i = size++;
+        while(i > 0 && (machine[i-1] > m || (machine[i-1] == m && firstTask[i-1] > first))) {
+            machine[i] = machine[i-1];
+            firstTask[i] = firstTask[i-1];
+            lastTask[i] = lastTask[i-1];
+            i--;
+        }
+        machine[i] = m;
+        firstTask[i] = first;
+        lastTask[i] = last;
+    }
+}
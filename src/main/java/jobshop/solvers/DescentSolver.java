@@ -1,10 +1,12 @@
 package jobshop.solvers;
 
 import jobshop.Instance;
+import jobshop.Metrics;
 import jobshop.Result;
 import jobshop.Result.ExitCause;
 import jobshop.Schedule;
 import jobshop.Solver;
+import jobshop.encodings.PackedResourceOrder;
 import jobshop.encodings.ResourceOrder;
 import jobshop.encodings.Task;
 import jobshop.solvers.GreedySolver.PriorityESTRule;
@@ -12,23 +14,49 @@ import jobshop.solvers.GreedySolver.PriorityRule;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
 public class DescentSolver implements Solver {
 	
 	private PriorityRule priorityRule;
 	private PriorityESTRule priorityESTRule;
+	private SwapEvaluator.Mode evaluationMode;
+	private Neighborhood neighborhood;
 	
 	// 2 constructors: the default and one with the EST restriction
 	public DescentSolver(PriorityRule rule) {
+		this(rule, SwapEvaluator.Mode.ESTIMATE);
+	}
+	
+	public DescentSolver(PriorityESTRule ruleEST) {
+		this(ruleEST, SwapEvaluator.Mode.ESTIMATE);
+	}
+	
+	// Same constructors, choosing how the neighbors are evaluated
+	public DescentSolver(PriorityRule rule, SwapEvaluator.Mode evaluationMode) {
+		this(rule, evaluationMode, Neighborhood.N5);
+	}
+	
+	public DescentSolver(PriorityESTRule ruleEST, SwapEvaluator.Mode evaluationMode) {
+		this(ruleEST, evaluationMode, Neighborhood.N5);
+	}
+	
+	// Same constructors, choosing the neighborhood explored at each step
+	public DescentSolver(PriorityRule rule, SwapEvaluator.Mode evaluationMode, Neighborhood neighborhood) {
 		super();
 		this.priorityRule = rule;
 		this.priorityESTRule = null;
+		this.evaluationMode = evaluationMode;
+		this.neighborhood = neighborhood;
 	}
 	
-	public DescentSolver(PriorityESTRule ruleEST) {
+	public DescentSolver(PriorityESTRule ruleEST, SwapEvaluator.Mode evaluationMode, Neighborhood neighborhood) {
 		super();
 		this.priorityESTRule = ruleEST;
 		this.priorityRule = null;
+		this.evaluationMode = evaluationMode;
+		this.neighborhood = neighborhood;
 	}
 
     /** A block represents a subsequence of the critical path such that all tasks in it execute on the same machine.
@@ -102,15 +130,96 @@ public class DescentSolver implements Solver {
             order.tasksByMachine[this.machine][this.t2] = task1;
         }
         
+        /** Apply this swap on the given packed resource order, without any allocation. */
+        public void applyOn(PackedResourceOrder order) {
+            order.swap(this.machine, this.t1, this.t2);
+        }
+        
+        /** Position, in the order before the move, of the task found in the given position after it. */
+        int sourceIndex(int index) {
+        	if(index == this.t1)
+        		return this.t2;
+        	if(index == this.t2)
+        		return this.t1;
+        	return index;
+        }
+        
         public String toString() {
         	return "Swap: {M" + this.machine + " | t1 = " + this.t1 + " | t2 = " + this.t2 + "}";
         }
     }
+    
+    /**
+     * Represents the insertion of a task in another position of its machine: the task in position t1 is removed
+     * and inserted back in position t2, the tasks in between are shifted by one position.
+     *
+     * With the resource order above, the insertion with : machine = 1, t1 = 0 and t2 = 2 results in
+     * machine 1 : (2,1) (1,1) (0,2)
+     *
+     * An insertion between two adjacent positions is the same move as the swap of these positions.
+     */
+    public static class Insertion extends Swap {
+
+        Insertion(int machine, int from, int to) {
+            super(machine, from, to);
+        }
+
+        @Override
+        public void applyOn(ResourceOrder order) {
+        	Task[] tasks = order.tasksByMachine[this.machine];
+        	Task moved = tasks[this.t1];
+        	if(this.t1 < this.t2) {
+        		System.arraycopy(tasks, this.t1 + 1, tasks, this.t1, this.t2 - this.t1);
+        	} else {
+        		System.arraycopy(tasks, this.t2, tasks, this.t2 + 1, this.t1 - this.t2);
+        	}
+        	tasks[this.t2] = moved;
+        }
+
+        @Override
+        public void applyOn(PackedResourceOrder order) {
+            order.move(this.machine, this.t1, this.t2);
+        }
+
+        @Override
+        int sourceIndex(int index) {
+        	if(index == this.t2)
+        		return this.t1;
+        	if(this.t1 < this.t2 && index >= this.t1 && index < this.t2)
+        		return index + 1;
+        	if(this.t2 < this.t1 && index > this.t2 && index <= this.t1)
+        		return index - 1;
+        	return index;
+        }
+
+        public String toString() {
+        	return "Insertion: {M" + this.machine + " | from = " + this.t1 + " | to = " + this.t2 + "}";
+        }
+    }
     // ************************************************************************************************************* //
     // *************************************** DescentSolver: solve Method ***************************************** //
     // ************************************************************************************************************* //
     @Override
     public Result solve(Instance instance, long deadline) {
+    	return solve(instance, deadline, null);
+    }
+    
+    /** Runs the descent until no neighbor improves the solution or the deadline is reached.
+     * Each improving solution is passed to onImprovement (if not null) when found. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement) {
+    	return solve(instance, deadline, onImprovement, Metrics.NONE);
+    }
+    
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics) {
+    	return solve(instance, deadline, onImprovement, metrics, ALONE);
+    }
+    
+    /** Same as above, also stopping when `shared` reaches the lower bound of the instance. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics,
+                        IntSupplier shared) {
     	// Choosing rule (SPT / LRPT / EST_SPT / EST_LRPT)
     	GreedySolver greedy = null;
     	if(priorityESTRule == null) {
@@ -124,53 +233,99 @@ public class DescentSolver implements Solver {
     	}
     	
         // Start: Sinit <- GreedySolver(instance)
-    	Result result = greedy.solve(instance, deadline);
+    	Result result = greedy.solve(instance, deadline, null, metrics);
     	Schedule initialSolution = result.schedule;
+    	if(onImprovement != null) {
+    		onImprovement.accept(initialSolution);
+    	}
     	
     	// Record the best solution
     	Schedule bestSolution = initialSolution;
+    	long start = metrics.startTimer();
     	ResourceOrder bestResourceOrder = new ResourceOrder(bestSolution);
+    	metrics.stopTimer(Metrics.Timer.COPY, start);
+    	// The neighbors are evaluated incrementally from the heads and tails of bestResourceOrder
+    	SwapEvaluator evaluator = new SwapEvaluator(instance, this.evaluationMode);
     	
     	// Repeat: Explore the concurrent neighbors
-    	Boolean optimizable = true;
-    	Schedule currentSolution;
-    	ResourceOrder currentResourceOrder;
-    	List<Block> criticalBlockList;
+    	boolean optimizable = true;
+    	int bestMakespan, neighborMakespan;
+    	Swap bestSwap;
+    	CriticalBlocks criticalBlocks = new CriticalBlocks(instance);
+    	List<Swap> neighbors = new ArrayList<>();
+    	long iteration = 0;
+    	// No schedule can be shorter than the lower bound: the descent stops when it reaches it
+    	int lowerBound = instance.lowerBound().value();
     	
     	while(optimizable && deadline > System.currentTimeMillis()) {
-    		// We first take the critical path from the bestSolution
-        	bestResourceOrder = new ResourceOrder(bestSolution);
-        	criticalBlockList = this.blocksOfCriticalPath(bestResourceOrder);
+    		iteration++;
+    		metrics.count(Metrics.Counter.ITERATIONS);
+    		// We first take the critical path from the bestResourceOrder
+    		start = metrics.startTimer();
+        	evaluator.reset(bestResourceOrder);
+        	evaluator.criticalBlocks(criticalBlocks);
+        	metrics.stopTimer(Metrics.Timer.CRITICAL_PATH, start);
+        	bestMakespan = evaluator.makespan();
+        	if(bestMakespan <= lowerBound || shared.getAsInt() <= lowerBound) {
+        		break;
+        	}
+        	bestSwap = null;
         	// By default we suppose there will be no optimization possible. If there is, this value will be later changed
         	optimizable = false;
+        	start = metrics.startTimer();
+        	this.neighborhood.movesOf(evaluator, criticalBlocks, neighbors);
+        	metrics.stopTimer(Metrics.Timer.NEIGHBORHOOD, start);
         	// We search for the best solution by checking all neighbors
-        	for(Block b : criticalBlockList) {
-        		for(Swap s : this.neighbors(b)) {
-                	// We copy to a variable the bestResourceOrder in order to modified freely while searching for the best solution
-                	currentResourceOrder = bestResourceOrder.copy();
-        			// We apply the swap on the current Resource Order and we schedule it
-        			s.applyOn(currentResourceOrder);
-        			currentSolution = currentResourceOrder.toSchedule();
-        			// If the currentSolution duration is smaller than the bestSolution one, save the currentSolution
-        			if(currentSolution != null) {
-	        			if(currentSolution.makespan() < bestSolution.makespan()) {
-	        				bestSolution = currentSolution;
-	        				// While we find better solutions keep running the solve method
-	        				optimizable = true;
-	        			}
-        			}
+        	start = metrics.startTimer();
+        	for(Swap s : neighbors) {
+        		// Makespan of the neighbor obtained by applying the swap, without copying the resource order
+        		neighborMakespan = evaluator.evaluate(s, bestMakespan);
+        		// If the neighbor duration is smaller than the best one, save the swap
+        		if(neighborMakespan < bestMakespan) {
+        			bestMakespan = neighborMakespan;
+        			bestSwap = s;
+        			// While we find better solutions keep running the solve method
+        			optimizable = true;
+        		}
+        	}
+        	metrics.stopTimer(Metrics.Timer.EVALUATION, start);
+        	metrics.count(Metrics.Counter.EVALUATIONS, neighbors.size());
+        	if(bestSwap != null) {
+        		bestSwap.applyOn(bestResourceOrder);
+        		metrics.count(Metrics.Counter.MOVES);
+        		metrics.improvement(bestMakespan);
+        		// the schedule is only built when someone looks at it, otherwise once at the end
+        		bestSolution = null;
+        		if(onImprovement != null) {
+        			bestSolution = decode(bestResourceOrder, metrics);
+        			onImprovement.accept(bestSolution);
         		}
         	}
+        	// the current solution of a descent is always the best one
+        	metrics.trace(iteration, bestMakespan, bestMakespan);
+    	}
+    	if(bestSolution == null) {
+    		bestSolution = decode(bestResourceOrder, metrics);
     	}
     	// We find the exit cause in order to create the result we will return
     	ExitCause exitCause = null;
-    	if(deadline <= System.currentTimeMillis()) {
+    	if(bestSolution.makespan() <= lowerBound) {
+    		exitCause = ExitCause.ProvedOptimal;
+    	} else if(deadline <= System.currentTimeMillis()) {
     		exitCause = ExitCause.Timeout;
     	} else {
     		exitCause = ExitCause.Blocked;
     	}
     	
-    	return new Result(instance, bestSolution, exitCause);
+    	return new Result(instance, bestSolution, exitCause, metrics.snapshot());
+    }
+    
+    private static Schedule decode(ResourceOrder order, Metrics metrics) {
+    	long start = metrics.startTimer();
+    	Schedule schedule = order.toSchedule();
+    	metrics.stopTimer(Metrics.Timer.DECODE, start);
+    	metrics.count(Metrics.Counter.DECODES);
+    	return schedule;
     }
     
     // ************************************************************************************************************* //
@@ -181,49 +336,20 @@ public class DescentSolver implements Solver {
     // ************************************************************************************************************* //
     /** Returns a list of all blocks of the critical path. */
     public List<Block> blocksOfCriticalPath(ResourceOrder order) {
-    	List<Block> criticalBlockList = new ArrayList<>();
-    	Block currentBlock;
-    	// Obtain the critical task list from the resource order instance
-        Schedule criticalSchedule = order.toSchedule();
-        List<Task> criticalTaskList = criticalSchedule.criticalPath();
-        
-        int totalNumMachines = criticalSchedule.pb.numMachines;
-        int totalNumJobs     = criticalSchedule.pb.numJobs;
-        
-        Task currentTaskRO;
-        int currentTaskIndexRO, currentCriticalTaskIndex, firstTask, lastTask;
-        
-        // We check for all machines
-        for(int currentMachine = 0; currentMachine < totalNumMachines; currentMachine++) {
-        	currentTaskIndexRO = 0;
-            while(currentTaskIndexRO < (totalNumJobs-1)){
-                currentTaskRO = order.tasksByMachine[currentMachine][currentTaskIndexRO];
-                if (criticalTaskList.contains(currentTaskRO)) {
-                    currentCriticalTaskIndex = criticalTaskList.indexOf(currentTaskRO);
-                    //If the next task in the critical path is running in the same machine try find the last task index
-                    if(currentMachine == criticalSchedule.pb.machine(criticalTaskList.get(currentCriticalTaskIndex+1))) {
-                        firstTask = currentTaskIndexRO;
-                        while(currentCriticalTaskIndex < (criticalTaskList.size()-1) && currentMachine == criticalSchedule.pb.machine(criticalTaskList.get(currentCriticalTaskIndex+1))){
-                        	// We advance in the list
-                            currentCriticalTaskIndex++;
-                            // We have to also advance in the resource order
-                            currentTaskIndexRO++;
-                        }
-                        // Create and add the new block to the list
-                        lastTask = currentTaskIndexRO;
-                	    currentBlock = new Block(currentMachine, firstTask, lastTask);
-                        criticalBlockList.add(currentBlock);
-                    }
-                }
-                // We move on to the next task in the resource order
-                currentTaskIndexRO++;
-            }
-        }
-        return criticalBlockList;
-     }
+    	SwapEvaluator evaluator = new SwapEvaluator(order.instance, SwapEvaluator.Mode.EXACT);
+    	evaluator.reset(order);
+    	CriticalBlocks criticalBlocks = new CriticalBlocks(order.instance);
+    	evaluator.criticalBlocks(criticalBlocks);
+    	return criticalBlocks.toList();
+    }
 
      /** For a given block, return the possible swaps for the Nowicki and Smutnicki neighborhood */
      public List<Swap> neighbors(Block block) {
+    	return swapsOf(block);
+     }
+     
+     /** Swaps of the Nowicki and Smutnicki neighborhood for a given block (shared with TabooSolver) */
+     static List<Swap> swapsOf(Block block) {
     	List<Swap> swapList = new ArrayList<>();
     	Swap swap1, swap2;
     	
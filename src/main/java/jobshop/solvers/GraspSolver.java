@@ -0,0 +1,279 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Metrics;
+import jobshop.Result;
+import jobshop.Result.ExitCause;
+import jobshop.Schedule;
+import jobshop.Solver;
+import jobshop.encodings.PackedResourceOrder;
+import jobshop.solvers.DescentSolver.Swap;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import jobshop.solvers.GreedySolver.PriorityRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/** GRASP: builds many randomized greedy solutions, each one improved by a descent, and keeps the best.
+ *
+ * The construction is the one of GreedySolver, except that the next task is not the best one for the priority rule:
+ * it is drawn at random in the restricted candidate list, the achievable tasks (restricted to the ones with the
+ * shortest start date for an EST rule) whose priority is at least best - alpha * (best - worst).
+ * With alpha = 0 only the ties of the rule are broken at random, with alpha = 1 any achievable task can be chosen.
+ *
+ * Starts are shared between `threads` workers, each with its own random generator split from the seed:
+ * with a single thread the search only depends on the seed.
+ */
+public class GraspSolver implements Solver {
+
+    private final PriorityRule priorityRule;
+    private final PriorityESTRule priorityESTRule;
+    private final double alpha;
+    // number of starts (0: until the deadline)
+    private final int maxStarts;
+    private final int threads;
+    private final long seed;
+    private final Neighborhood neighborhood;
+
+    public GraspSolver(PriorityRule rule, double alpha) {
+        this(rule, alpha, 0, 1, 0, Neighborhood.N5);
+    }
+
+    public GraspSolver(PriorityESTRule ruleEST, double alpha) {
+        this(ruleEST, alpha, 0, 1, 0, Neighborhood.N5);
+    }
+
+    public GraspSolver(PriorityRule rule, double alpha, int maxStarts, int threads, long seed, Neighborhood neighborhood) {
+        this(rule, null, alpha, maxStarts, threads, seed, neighborhood);
+    }
+
+    public GraspSolver(PriorityESTRule ruleEST, double alpha, int maxStarts, int threads, long seed, Neighborhood neighborhood) {
+        this(ruleEST.rule(), ruleEST, alpha, maxStarts, threads, seed, neighborhood);
+    }
+
+    private GraspSolver(PriorityRule rule, PriorityESTRule ruleEST, double alpha, int maxStarts, int threads, long seed,
+                        Neighborhood neighborhood) {
+        if(alpha < 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be between 0 and 1: " + alpha);
+        }
+        this.priorityRule = rule;
+        this.priorityESTRule = ruleEST;
+        this.alpha = alpha;
+        this.maxStarts = maxStarts;
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+        this.neighborhood = neighborhood;
+    }
+
+    @Override
+    public Result solve(Instance instance, long deadline) {
+        return solve(instance, deadline, null, Metrics.NONE);
+    }
+
+    /** Runs starts until the deadline or maxStarts starts. onImprovement (if not null) is called with each schedule
+     * improving on all the schedules found so far by any worker, never concurrently. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics) {
+        return solve(instance, deadline, onImprovement, metrics, ALONE);
+    }
+
+    /** Same as above, only the local optima better than `shared` being decoded. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics,
+                        IntSupplier shared) {
+        Incumbent incumbent = new Incumbent();
+        Consumer<Schedule> share = schedule -> incumbent.offer(schedule, improved -> {
+            metrics.improvement(improved.makespan());
+            if(onImprovement != null) {
+                onImprovement.accept(improved);
+            }
+        });
+        AtomicLong starts = new AtomicLong();
+        SplittableRandom root = new SplittableRandom(seed);
+
+        if(threads == 1) {
+            search(instance, deadline, root.split(), starts, incumbent, shared, share, metrics);
+        } else {
+            List<Callable<Void>> workers = new ArrayList<>(threads);
+            for(int t = 0 ; t < threads ; t++) {
+                SplittableRandom random = root.split();
+                workers.add(() -> {
+                    search(instance, deadline, random, starts, incumbent, shared, share, metrics);
+                    return null;
+                });
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                for(Future<Void> worker : pool.invokeAll(workers)) {
+                    worker.get();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException("A worker of the GRASP failed", e);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        ExitCause exitCause = incumbent.makespan() <= instance.lowerBound().value() ? ExitCause.ProvedOptimal
+                : deadline <= System.currentTimeMillis() ? ExitCause.Timeout : ExitCause.Blocked;
+        return new Result(instance, incumbent.schedule(), exitCause, metrics.snapshot());
+    }
+
+    /** Loop of a worker: construction then descent, until the deadline, the last start or a proved optimum. */
+    private void search(Instance instance, long deadline, SplittableRandom random, AtomicLong starts,
+                        Incumbent incumbent, IntSupplier shared, Consumer<Schedule> share, Metrics metrics) {
+        PackedResourceOrder order = new PackedResourceOrder(instance);
+        SwapEvaluator evaluator = new SwapEvaluator(instance, SwapEvaluator.Mode.ESTIMATE);
+        CriticalBlocks blocks = new CriticalBlocks(instance);
+        List<Swap> moves = new ArrayList<>();
+        // next task of each job, the jobs with a task left (unordered) and the candidates of the current step
+        int[] nextTask = new int[instance.numJobs];
+        int[] achievableJobs = new int[instance.numJobs];
+        int[] candidates = new int[instance.numJobs];
+        int[] priorities = new int[instance.numJobs];
+        int[] nextStartDateJobs = new int[instance.numJobs];
+        int[] nextStartDateMachines = new int[instance.numMachines];
+        int[] nextFreeSlot = new int[instance.numMachines];
+        // all workers stop once one of them, or a solver sharing its schedules, reaches the lower bound
+        int lowerBound = instance.lowerBound().value();
+
+        while(incumbent.makespan() > lowerBound && shared.getAsInt() > lowerBound && deadline > System.currentTimeMillis()) {
+            long k = starts.incrementAndGet();
+            if(maxStarts > 0 && k > maxStarts) {
+                break;
+            }
+            metrics.count(Metrics.Counter.ITERATIONS);
+
+            // construction
+            int numAchievable = instance.numJobs;
+            for(int j = 0 ; j < instance.numJobs ; j++) {
+                achievableJobs[j] = j;
+            }
+            Arrays.fill(nextTask, 0);
+            Arrays.fill(nextStartDateJobs, 0);
+            Arrays.fill(nextStartDateMachines, 0);
+            Arrays.fill(nextFreeSlot, 0);
+            while(numAchievable > 0) {
+                int job = priorityESTRule == null
+                        ? randomCandidate(achievableJobs, numAchievable, nextTask, priorities, instance, random)
+                        : randomCandidate(candidates, earliestStarting(achievableJobs, numAchievable, nextTask, instance,
+                                nextStartDateJobs, nextStartDateMachines, candidates), nextTask, priorities, instance, random);
+                int task = nextTask[job]++;
+
+                int machine = instance.machine(job, task);
+                int end = Math.max(nextStartDateJobs[job], nextStartDateMachines[machine]) + instance.duration(job, task);
+                nextStartDateJobs[job] = end;
+                nextStartDateMachines[machine] = end;
+                if(nextTask[job] == instance.numTasks) {
+                    // swap-remove of the finished job
+                    for(int i = 0 ; i < numAchievable ; i++) {
+                        if(achievableJobs[i] == job) {
+                            achievableJobs[i] = achievableJobs[--numAchievable];
+                            break;
+                        }
+                    }
+                }
+                order.tasks[machine * instance.numJobs + nextFreeSlot[machine]++] = order.id(job, task);
+            }
+
+            // descent: apply the best improving move until there is none
+            int makespan;
+            while(true) {
+                long start = metrics.startTimer();
+                evaluator.reset(order);
+                evaluator.criticalBlocks(blocks);
+                metrics.stopTimer(Metrics.Timer.CRITICAL_PATH, start);
+                makespan = evaluator.makespan();
+                if(makespan <= lowerBound || shared.getAsInt() <= lowerBound) {
+                    break;
+                }
+                start = metrics.startTimer();
+                neighborhood.movesOf(evaluator, blocks, moves);
+                metrics.stopTimer(Metrics.Timer.NEIGHBORHOOD, start);
+                start = metrics.startTimer();
+                Swap best = null;
+                int bound = makespan;
+                for(Swap move : moves) {
+                    int neighborMakespan = evaluator.evaluate(move, bound);
+                    if(neighborMakespan < bound) {
+                        bound = neighborMakespan;
+                        best = move;
+                    }
+                }
+                metrics.stopTimer(Metrics.Timer.EVALUATION, start);
+                metrics.count(Metrics.Counter.EVALUATIONS, moves.size());
+                if(best == null || deadline <= System.currentTimeMillis()) {
+                    break;
+                }
+                best.applyOn(order);
+                metrics.count(Metrics.Counter.MOVES);
+            }
+
+            if(makespan < incumbent.makespan() && makespan < shared.getAsInt()) {
+                long start = metrics.startTimer();
+                Schedule schedule = order.toSchedule();
+                metrics.stopTimer(Metrics.Timer.DECODE, start);
+                metrics.count(Metrics.Counter.DECODES);
+                share.accept(schedule);
+            }
+            metrics.trace(k, makespan, incumbent.makespan());
+        }
+    }
+
+    /** Same as PriorityESTRule.getESTPriorityTasks: writes in candidates the jobs whose next task has the shortest
+     * start date, and returns their number. */
+    private static int earliestStarting(int[] jobs, int size, int[] nextTask, Instance instance,
+                                        int[] nextStartDateJobs, int[] nextStartDateMachines, int[] candidates) {
+        int minStartDate = Integer.MAX_VALUE;
+        int numCandidates = 0;
+        for(int i = 0 ; i < size ; i++) {
+            int job = jobs[i];
+            int startDate = Math.max(nextStartDateJobs[job], nextStartDateMachines[instance.machine(job, nextTask[job])]);
+            if(startDate < minStartDate) {
+                minStartDate = startDate;
+                numCandidates = 0;
+            }
+            if(startDate == minStartDate) {
+                candidates[numCandidates++] = job;
+            }
+        }
+        return numCandidates;
+    }
+
+    /** The job of a task drawn uniformly in the restricted candidate list, made of the next tasks of the candidate
+     * jobs. priorities is a buffer of at least numCandidates values. */
+    private int randomCandidate(int[] candidates, int numCandidates, int[] nextTask, int[] priorities, Instance instance,
+                                SplittableRandom random) {
+        int best = Integer.MIN_VALUE;
+        int worst = Integer.MAX_VALUE;
+        for(int i = 0 ; i < numCandidates ; i++) {
+            int job = candidates[i];
+            int priority = priorityRule.priority(job, nextTask[job], instance);
+            priorities[i] = priority;
+            best = Math.max(best, priority);
+            worst = Math.min(worst, priority);
+        }
+        int threshold = best - (int) (alpha * ((long) best - worst));
+        int size = 0;
+        for(int i = 0 ; i < numCandidates ; i++) {
+            if(priorities[i] >= threshold)
+                size++;
+        }
+        int chosen = random.nextInt(size);
+        for(int i = 0 ; i < numCandidates ; i++) {
+            if(priorities[i] >= threshold && chosen-- == 0)
+                return candidates[i];
+        }
+        throw new IllegalStateException("empty candidate list");
+    }
+}
@@ -1,6 +1,7 @@
 package jobshop.solvers;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 import jobshop.*;
 import jobshop.Result.ExitCause;
@@ -31,6 +32,11 @@ public class GreedySolver implements Solver {
 				}
 				return TaskSPT;
 			}
+			
+			@Override
+			public int priority(int job, int task, Instance instance) {
+				return -instance.duration(job, task);
+			}
 		},
 		LRPT {
 			@Override
@@ -41,10 +47,7 @@ public class GreedySolver implements Solver {
 				
 				for(int i = 0; i < achievableTasks.size(); i++) {
 					current = achievableTasks.get(i);
-					int remainingTime = 0;
-					for(int j = current.task; j < instance.numTasks; j++) {
-						remainingTime += instance.duration(current.job, j);
-					}
+					int remainingTime = instance.remainingTime(current);
 					if(remainingTime > maxDuration) {
 						maxDuration = remainingTime;
 						TaskLRPT = current;
@@ -52,6 +55,11 @@ public class GreedySolver implements Solver {
 				}
 				return TaskLRPT;
 			}
+			
+			@Override
+			public int priority(int job, int task, Instance instance) {
+				return instance.remainingTime(job, task);
+			}
 		};
 		/**
 		 * Returns the Task to work with depending on the rule chosen
@@ -59,10 +67,26 @@ public class GreedySolver implements Solver {
 		 * @return currentTask
 		 */
 		public abstract Task getTaskByRule(ArrayList<Task> achievableTasks, Instance instance);
+		/**
+		 * Returns the priority of a task for this rule: getTaskByRule returns the first task with the highest one
+		 * @param job, task, instance
+		 * @return priority
+		 */
+		public abstract int priority(int job, int task, Instance instance);
+		
+		public int priority(Task task, Instance instance) {
+			return priority(task.job, task.task, instance);
+		}
+		
+		/** Heap key of a task: the smallest key is the task getTaskByRule would return, the tasks being listed
+		 * in the order of their rank (the order in which they became achievable). */
+		long key(int job, int task, int rank, Instance instance) {
+			return ((long) -priority(job, task, instance) << 32) | rank;
+		}
 	}
 	
 	public enum PriorityESTRule{
-		EST_SPT {
+		EST_SPT(PriorityRule.SPT) {
 			@Override
 			public Task getTaskByESTRule(ArrayList<Task> achievableTasks, Instance instance, int[] nextStartDateJobs, int[] nextStartDateMachines) {
 
@@ -74,7 +98,7 @@ public class GreedySolver implements Solver {
 				return TaskSPT;
 			}
 		},
-		EST_LRPT {
+		EST_LRPT(PriorityRule.LRPT) {
 			@Override
 			public Task getTaskByESTRule(ArrayList<Task> achievableTasks, Instance instance, int[] nextStartDateJobs, int[] nextStartDateMachines) {	
 				ArrayList<Task> priorityTasks = this.getESTPriorityTasks(achievableTasks, instance, nextStartDateJobs, nextStartDateMachines);
@@ -85,6 +109,18 @@ public class GreedySolver implements Solver {
 				return TaskLRPT;
 			}
 		};
+		
+		// Rule applied among the tasks with the shortest start date
+		private final PriorityRule rule;
+		
+		PriorityESTRule(PriorityRule rule) {
+			this.rule = rule;
+		}
+		
+		/** The rule applied among the tasks with the shortest start date. */
+		public PriorityRule rule() {
+			return rule;
+		}
 		/**
 		 * Returns the Task to work with depending on the rule chosen
 		 * @param achievableTasks, instance
@@ -144,60 +180,168 @@ public class GreedySolver implements Solver {
 	
 	@Override
     public Result solve(Instance instance, long deadline) {
-		
-		int currentMachine, currentDuration, currentStartDate, nextFreeSlot;
-		// We declare 2 arrays containing the updated moment the next task will start in a job and a machine respectively
-		int[] nextStartDateJobs = new int[instance.numJobs];
-		int[] nextStartDateMachines = new int[instance.numMachines];
-		
+		return solve(instance, deadline, null, Metrics.NONE);
+	}
+	
+	/** Builds the greedy schedule. It is passed to onImprovement (if not null) once built.
+	 *
+	 * The achievable tasks are kept in heaps ordered as the rules would choose them, in O(log numJobs) per task
+	 * instead of a scan of all achievable tasks. The schedule is the same as with getTaskByRule / getTaskByESTRule. */
+	@Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics) {
 		// We create a new ResourceOrder for putting all tasks in the schedule
 		ResourceOrder solutionRO = new ResourceOrder(instance);
-		// Array list with all the achievable current tasks
-        ArrayList<Task> achievableTasks = new ArrayList<>();
-      
-        // Initialize the array list with all the first task achievable
-		for(int i = 0 ; i < instance.numJobs ; i++) {
-			achievableTasks.add(new Task(i, 0));
-        }
+		if(priorityESTRule == null) {
+			this.scheduleByRule(instance, deadline, solutionRO);
+		} else {
+			this.scheduleByESTRule(instance, deadline, solutionRO);
+		}
 		
-        while(!achievableTasks.isEmpty() && deadline > System.currentTimeMillis()) {
-            // We take the task we should do now in function of the priority rule used
-        	Task currentTask = null;
-        	if(priorityESTRule == null) {
-        		currentTask = priorityRule.getTaskByRule(achievableTasks, instance);
-        	} else if(priorityRule == null) {
-        		currentTask = priorityESTRule.getTaskByESTRule(achievableTasks, instance, nextStartDateJobs, nextStartDateMachines);
-        	} else {
-        		System.out.printf("Error priorityRule and priorityRuleEST are null. You must give a value to one of them.");
-        	}
-        	
-            // We remove the current task from the achievable tasks list
-            achievableTasks.remove(currentTask);
-        	
-        	// Updating starting dates
-			currentMachine   = instance.machine(currentTask);
-			currentDuration  = instance.duration(currentTask);
-            currentStartDate = Integer.max(nextStartDateJobs[currentTask.job], nextStartDateMachines[currentMachine]);
-
-			nextStartDateJobs[currentTask.job]    = currentStartDate + currentDuration;
-			nextStartDateMachines[currentMachine] = currentStartDate + currentDuration;
-            
-            // If it's not the last task of the job, we update the array list with the new task
-            if (currentTask.task < (instance.numTasks - 1)) {
-            	achievableTasks.add(new Task(currentTask.job, currentTask.task + 1));
-            }
-            
-            // We add the current task to the solution
-            nextFreeSlot = solutionRO.nextFreeSlot[currentMachine]++;
-            solutionRO.tasksByMachine[currentMachine][nextFreeSlot] = currentTask;
-        }
+    	long start = metrics.startTimer();
+    	Schedule schedule = solutionRO.toSchedule();
+    	metrics.stopTimer(Metrics.Timer.DECODE, start);
+    	metrics.count(Metrics.Counter.DECODES);
     	// We find the exit cause in order to create the result we will return
     	ExitCause exitCause = null;
-    	if(deadline <= System.currentTimeMillis()) {
+    	if(schedule != null && schedule.makespan() <= instance.lowerBound().value()) {
+    		exitCause = ExitCause.ProvedOptimal;
+    	} else if(deadline <= System.currentTimeMillis()) {
     		exitCause = ExitCause.Timeout;
     	} else {
     		exitCause = ExitCause.Blocked;
     	}
-        return new Result(instance, solutionRO.toSchedule(), exitCause);
+    	if(schedule != null) {
+    		metrics.improvement(schedule.makespan());
+    		if(onImprovement != null) {
+    			onImprovement.accept(schedule);
+    		}
+    	}
+        return new Result(instance, schedule, exitCause, metrics.snapshot());
     }
+	
+	/** Appends tasks to the resource order, always choosing the achievable task getTaskByRule would return. */
+	private void scheduleByRule(Instance instance, long deadline, ResourceOrder solutionRO) {
+		// The next task of each job, in a heap keyed by the rule (rank: order in which the tasks became achievable)
+		IndexedHeap achievableJobs = new IndexedHeap(instance.numJobs);
+		int[] nextTask = new int[instance.numJobs];
+		int rank = 0;
+		for(int j = 0 ; j < instance.numJobs ; j++) {
+			achievableJobs.put(j, priorityRule.key(j, 0, rank++, instance));
+		}
+		
+		while(!achievableJobs.isEmpty() && deadline > System.currentTimeMillis()) {
+			int job = achievableJobs.poll();
+			int task = nextTask[job]++;
+			int machine = instance.machine(job, task);
+			solutionRO.tasksByMachine[machine][solutionRO.nextFreeSlot[machine]++] = new Task(job, task);
+			if(task < instance.numTasks - 1) {
+				achievableJobs.put(job, priorityRule.key(job, task + 1, rank++, instance));
+			}
+		}
+	}
+	
+	/** Appends tasks to the resource order, always choosing the achievable task getTaskByESTRule would return:
+	 * the best for the rule among the ones with the earliest start date.
+	 *
+	 * The achievable tasks of each machine are split in two heaps: the released ones (keyed by the rule), whose job
+	 * is ready at level[m] at the latest, and the pending ones (keyed by the date their job is ready). level[m] is
+	 * at least the date the machine is free, so that when there are released tasks they all start at
+	 * max(nextStartDateMachines[m], level[m]). Machines are kept in a heap keyed by the earliest start date of their
+	 * tasks: the candidates are the released tasks of the machines with the smallest one (usually a single one). */
+	private void scheduleByESTRule(Instance instance, long deadline, ResourceOrder solutionRO) {
+		PriorityRule rule = priorityESTRule.rule();
+		int numJobs = instance.numJobs;
+		int numMachines = instance.numMachines;
+		int[] nextStartDateJobs = new int[numJobs];
+		int[] nextStartDateMachines = new int[numMachines];
+		int[] nextTask = new int[numJobs];
+		int[] rankOfJob = new int[numJobs];
+		int rank = 0;
+		
+		int[] level = new int[numMachines];
+		IndexedHeap[] released = new IndexedHeap[numMachines];
+		IndexedHeap[] pending = new IndexedHeap[numMachines];
+		for(int m = 0 ; m < numMachines ; m++) {
+			released[m] = new IndexedHeap(numJobs);
+			pending[m] = new IndexedHeap(numJobs);
+		}
+		IndexedHeap machines = new IndexedHeap(numMachines);
+		int[] tiedMachines = new int[numMachines];
+		
+		// all first tasks are ready at 0 = level[m]
+		for(int j = 0 ; j < numJobs ; j++) {
+			rankOfJob[j] = rank++;
+			int machine = instance.machine(j, 0);
+			released[machine].put(j, rule.key(j, 0, rankOfJob[j], instance));
+			machines.put(machine, 0);
+		}
+		
+		while(!machines.isEmpty() && deadline > System.currentTimeMillis()) {
+			// Earliest start date, and the best task among the ones starting then
+			long startDate = machines.peekKey();
+			int numTied = machines.elementsWithMinKey(tiedMachines);
+			int job = -1;
+			long bestKey = Long.MAX_VALUE;
+			for(int i = 0 ; i < numTied ; i++) {
+				int m = tiedMachines[i];
+				if(released[m].isEmpty()) {
+					// the tasks whose job is ready at startDate become candidates
+					level[m] = (int) startDate;
+					release(m, level, pending, released, rule, nextTask, rankOfJob, instance);
+				}
+				if(released[m].peekKey() < bestKey) {
+					bestKey = released[m].peekKey();
+					job = released[m].peek();
+				}
+			}
+			
+			int task = nextTask[job]++;
+			int machine = instance.machine(job, task);
+			released[machine].remove(job);
+			solutionRO.tasksByMachine[machine][solutionRO.nextFreeSlot[machine]++] = new Task(job, task);
+			
+			// Updating starting dates
+			int end = (int) startDate + instance.duration(job, task);
+			nextStartDateJobs[job] = end;
+			nextStartDateMachines[machine] = end;
+			if(end > level[machine]) {
+				level[machine] = end;
+				release(machine, level, pending, released, rule, nextTask, rankOfJob, instance);
+			}
+			
+			// The next task of the job becomes achievable
+			if(task < instance.numTasks - 1) {
+				rankOfJob[job] = rank++;
+				int next = instance.machine(job, task + 1);
+				if(end <= level[next]) {
+					released[next].put(job, rule.key(job, task + 1, rankOfJob[job], instance));
+				} else {
+					pending[next].put(job, end);
+				}
+				updateMachine(next, level, nextStartDateMachines, pending, released, machines);
+			}
+			updateMachine(machine, level, nextStartDateMachines, pending, released, machines);
+		}
+	}
+	
+	/** Moves the pending tasks of the machine whose job is ready at level[machine] to the released ones. */
+	private static void release(int machine, int[] level, IndexedHeap[] pending, IndexedHeap[] released, PriorityRule rule,
+			int[] nextTask, int[] rankOfJob, Instance instance) {
+		while(!pending[machine].isEmpty() && pending[machine].peekKey() <= level[machine]) {
+			int job = pending[machine].poll();
+			released[machine].put(job, rule.key(job, nextTask[job], rankOfJob[job], instance));
+		}
+	}
+	
+	/** Updates the earliest start date of the tasks of the machine in the heap of machines. */
+	private static void updateMachine(int machine, int[] level, int[] nextStartDateMachines, IndexedHeap[] pending,
+			IndexedHeap[] released, IndexedHeap machines) {
+		if(!released[machine].isEmpty()) {
+			machines.put(machine, Math.max(nextStartDateMachines[machine], level[machine]));
+		} else if(!pending[machine].isEmpty()) {
+			machines.put(machine, Math.max(nextStartDateMachines[machine], pending[machine].peekKey()));
+		} else {
+			machines.remove(machine);
+		}
+	}
 }
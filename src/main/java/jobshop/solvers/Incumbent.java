@@ -0,0 +1,61 @@
+package jobshop.solvers;
+
+import jobshop.Schedule;
+
+import java.util.function.Consumer;
+
+/** Best schedule found so far, shared between threads.
+ *
+ * Several solvers may offer their schedules concurrently: only the ones strictly improving
+ * the makespan are kept. */
+public class Incumbent {
+
+    private Schedule best = null;
+    private volatile int bestMakespan = Integer.MAX_VALUE;
+
+    /** Makespan of the best schedule offered so far (Integer.MAX_VALUE if none). Does not lock. */
+    public int makespan() {
+        return bestMakespan;
+    }
+
+    /** Best schedule offered so far, null if none. */
+    public synchronized Schedule schedule() {
+        return best;
+    }
+
+    /** Keeps the schedule if it is better than the current best one. Returns true if it was kept. */
+    public boolean offer(Schedule schedule) {
+        if(schedule == null) {
+            return false;
+        }
+        int makespan = schedule.makespan();
+        // cheap check without locking, most offers do not improve
+        if(makespan >= bestMakespan) {
+            return false;
+        }
+        synchronized (this) {
+            if(makespan >= bestMakespan) {
+                return false;
+            }
+            best = schedule;
+            bestMakespan = makespan;
+            return true;
+        }
+    }
+
+    /** Same as offer(schedule). A kept schedule is then passed to onImprovement (if not null), unless a better one
+     * was offered meanwhile: onImprovement only sees improving schedules, and is never called concurrently. */
+    public boolean offer(Schedule schedule, Consumer<Schedule> onImprovement) {
+        if(!offer(schedule)) {
+            return false;
+        }
+        if(onImprovement != null) {
+            synchronized (this) {
+                if(best == schedule) {
+                    onImprovement.accept(schedule);
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,143 @@
+package jobshop.solvers;
+
+import java.util.Arrays;
+
+/** Binary min-heap of the integers 0 .. capacity-1, each one with a long key.
+ *
+ * An element can be added, removed or have its key changed in O(log size) wherever it is in the heap.
+ * Elements with the same key are returned in no particular order: ties must be broken in the key itself.
+ */
+class IndexedHeap {
+
+    // elements in heap order, and key and position in heap of each element (-1 if absent)
+    private final int[] heap;
+    private final long[] keys;
+    private final int[] position;
+    private int size = 0;
+    // stack used by elementsWithMinKey()
+    private final int[] stack;
+
+    IndexedHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new long[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+        stack = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int element) {
+        return position[element] >= 0;
+    }
+
+    long key(int element) {
+        return keys[element];
+    }
+
+    /** Element with the smallest key. The heap must not be empty. */
+    int peek() {
+        return heap[0];
+    }
+
+    long peekKey() {
+        return keys[heap[0]];
+    }
+
+    /** Removes and returns the element with the smallest key. The heap must not be empty. */
+    int poll() {
+        int element = heap[0];
+        remove(element);
+        return element;
+    }
+
+    /** Adds the element with the given key, or changes its key if it is already in the heap. */
+    void put(int element, long key) {
+        int i = position[element];
+        if(i < 0) {
+            keys[element] = key;
+            place(element, size++);
+            siftUp(size - 1);
+        } else {
+            long old = keys[element];
+            keys[element] = key;
+            if(key < old)
+                siftUp(i);
+            else
+                siftDown(i);
+        }
+    }
+
+    /** Removes the element if it is in the heap. */
+    void remove(int element) {
+        int i = position[element];
+        if(i < 0)
+            return;
+        position[element] = -1;
+        size--;
+        if(i < size) {
+            // the last element fills the hole, then moves up or down
+            int last = heap[size];
+            place(last, i);
+            siftUp(i);
+            siftDown(position[last]);
+        }
+    }
+
+    /** Writes in `out` the elements whose key is the smallest one and returns their number, in O(number).
+     * The heap must not be empty. */
+    int elementsWithMinKey(int[] out) {
+        long min = keys[heap[0]];
+        int count = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while(top > 0) {
+            int i = stack[--top];
+            out[count++] = heap[i];
+            for(int child = 2 * i + 1 ; child <= 2 * i + 2 && child < size ; child++) {
+                if(keys[heap[child]] == min)
+                    stack[top++] = child;
+            }
+        }
+        return count;
+    }
+
+    private void siftUp(int i) {
+        int element = heap[i];
+        while(i > 0) {
+            int parent = (i - 1) / 2;
+            if(keys[heap[parent]] <= keys[element])
+                break;
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(element, i);
+    }
+
+    private void siftDown(int i) {
+        int element = heap[i];
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= size)
+                break;
+            if(child + 1 < size && keys[heap[child + 1]] < keys[heap[child]])
+                child++;
+            if(keys[heap[child]] >= keys[element])
+                break;
+            place(heap[child], i);
+            i = child;
+        }
+        place(element, i);
+    }
+
+    private void place(int element, int i) {
+        heap[i] = element;
+        position[element] = i;
+    }
+}
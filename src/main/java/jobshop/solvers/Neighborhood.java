@@ -0,0 +1,70 @@
+package jobshop.solvers;
+
+import jobshop.solvers.DescentSolver.Block;
+import jobshop.solvers.DescentSolver.Insertion;
+import jobshop.solvers.DescentSolver.Swap;
+
+import java.util.List;
+
+/** Neighborhoods built from the blocks of a critical path, explored by DescentSolver and TabooSolver.
+ *
+ *  - N5 (Nowicki and Smutnicki): swap the two first and the two last tasks of each block.
+ *  - N6 (Balas and Vazacopoulos): move a task of a block to the front or to the end of its block.
+ *  - N7 (Zhang et al.): N6, plus moving the first or the last task of a block to any position inside the block.
+ *
+ * The insertions of N6 and N7 that would create a cycle are filtered out in constant time with
+ * SwapEvaluator.canInsert(), so that they are never evaluated. Each move is generated once.
+ */
+public enum Neighborhood {
+    N5 {
+        @Override
+        void addMoves(SwapEvaluator evaluator, int machine, int first, int last, List<Swap> moves) {
+            moves.addAll(DescentSolver.swapsOf(new Block(machine, first, last)));
+        }
+    },
+    N6 {
+        @Override
+        void addMoves(SwapEvaluator evaluator, int machine, int first, int last, List<Swap> moves) {
+            // to the front of the block
+            for(int i = first + 1 ; i <= last ; i++) {
+                addInsertion(evaluator, machine, i, first, moves);
+            }
+            // to the end of the block (for a block of two tasks, it is the same move as above)
+            for(int i = last > first + 1 ? first : first + 1 ; i < last ; i++) {
+                addInsertion(evaluator, machine, i, last, moves);
+            }
+        }
+    },
+    N7 {
+        @Override
+        void addMoves(SwapEvaluator evaluator, int machine, int first, int last, List<Swap> moves) {
+            N6.addMoves(evaluator, machine, first, last, moves);
+            // the first task after a task inside the block (after the second one is the same move as in N6)
+            for(int to = first + 2 ; to < last ; to++) {
+                addInsertion(evaluator, machine, first, to, moves);
+            }
+            // the last task before a task inside the block (before the second to last one is already in N6)
+            for(int to = first + 1 ; to < last - 1 ; to++) {
+                addInsertion(evaluator, machine, last, to, moves);
+            }
+        }
+    };
+
+    /** Adds the moves of this neighborhood for the block first..last of the machine. */
+    abstract void addMoves(SwapEvaluator evaluator, int machine, int first, int last, List<Swap> moves);
+
+    /** Replaces the content of `moves` with the moves of this neighborhood for the given critical blocks,
+     * the evaluator being reset on the order the blocks were computed from. */
+    public void movesOf(SwapEvaluator evaluator, CriticalBlocks blocks, List<Swap> moves) {
+        moves.clear();
+        for(int b = 0 ; b < blocks.size() ; b++) {
+            addMoves(evaluator, blocks.machine(b), blocks.firstTask(b), blocks.lastTask(b), moves);
+        }
+    }
+
+    private static void addInsertion(SwapEvaluator evaluator, int machine, int from, int to, List<Swap> moves) {
+        if(evaluator.canInsert(machine, from, to)) {
+            moves.add(new Insertion(machine, from, to));
+        }
+    }
+}
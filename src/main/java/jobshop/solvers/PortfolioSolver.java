@@ -0,0 +1,154 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Metrics;
+import jobshop.Result;
+import jobshop.Result.ExitCause;
+import jobshop.Schedule;
+import jobshop.Solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/** Runs several solvers in parallel on the same instance, each in its own thread and with the same deadline,
+ * and returns the best of their results.
+ *
+ * The improving schedules found by the members are gathered in a shared Incumbent as soon as they are found.
+ * Each member receives the deadline, a callback feeding the incumbent and the makespan of the incumbent
+ * (the `shared` argument of Solver.solve()), that it may read to skip schedules that cannot improve on it.
+ * Each member is responsible for respecting the deadline: the portfolio returns when all of them are done.
+ */
+public class PortfolioSolver implements Solver {
+
+    private final Solver[] members;
+
+    public PortfolioSolver(Solver... members) {
+        if(members.length == 0) {
+            throw new IllegalArgumentException("A portfolio needs at least one solver");
+        }
+        this.members = members;
+    }
+
+    @Override
+    public Result solve(Instance instance, long deadline) {
+        return solve(instance, deadline, null);
+    }
+
+    /** Runs all members. onImprovement (if not null) is called with each schedule improving on all the schedules
+     * found so far by any member. It may be called from several threads, but never concurrently. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement) {
+        return solve(instance, deadline, onImprovement, Metrics.NONE);
+    }
+
+    /** Same as above, the members reporting in the same metrics (counters and timers are summed over the members,
+     * the improvements of the timeline are those of the individual members). The convergence trace is the one of the
+     * portfolio: a point each time the best schedule of all members improves, the iteration being the total number
+     * of iterations of the members so far. The traces of the members, interleaved, would mean nothing. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics) {
+        return solve(instance, deadline, onImprovement, metrics, ALONE);
+    }
+
+    /** Same as above, the portfolio being itself a member of a larger search sharing `shared`. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics,
+                        IntSupplier shared) {
+        Incumbent incumbent = new Incumbent();
+        IntSupplier best = () -> Math.min(incumbent.makespan(), shared.getAsInt());
+        MemberMetrics memberMetrics = new MemberMetrics(metrics);
+        Consumer<Schedule> share = schedule -> incumbent.offer(schedule, improved -> {
+            metrics.trace(memberMetrics.iterations.get(), improved.makespan(), improved.makespan());
+            if(onImprovement != null) {
+                onImprovement.accept(improved);
+            }
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(members.length);
+
+        List<Callable<Result>> runs = new ArrayList<>(members.length);
+        for(Solver member : members) {
+            runs.add(() -> {
+                Result result = member.solve(instance, deadline, share, memberMetrics, best);
+                share.accept(result.schedule);
+                return result;
+            });
+        }
+
+        // the cause of the best result is kept, unless a member proved its result optimal
+        ExitCause exitCause = ExitCause.Blocked;
+        try {
+            for(Future<Result> run : pool.invokeAll(runs)) {
+                Result result = run.get();
+                if(result.cause == ExitCause.ProvedOptimal) {
+                    exitCause = ExitCause.ProvedOptimal;
+                } else if(exitCause != ExitCause.ProvedOptimal && result.schedule != null
+                        && result.schedule.makespan() == incumbent.makespan()) {
+                    exitCause = result.cause;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("A solver of the portfolio failed", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        // members that do not check the lower bound may still reach it
+        if(incumbent.makespan() <= instance.lowerBound().value()) {
+            exitCause = ExitCause.ProvedOptimal;
+        } else if(exitCause != ExitCause.ProvedOptimal && deadline <= System.currentTimeMillis()) {
+            exitCause = ExitCause.Timeout;
+        }
+        return new Result(instance, incumbent.schedule(), exitCause, metrics.snapshot());
+    }
+
+    /** Metrics of a member: everything goes to the metrics of the portfolio, except the trace points that are only
+     * counted. */
+    private static class MemberMetrics implements Metrics {
+
+        private final Metrics portfolio;
+        // trace points reported by all the members, one per iteration of a member
+        final AtomicLong iterations = new AtomicLong();
+
+        MemberMetrics(Metrics portfolio) {
+            this.portfolio = portfolio;
+        }
+
+        @Override
+        public void count(Counter counter, long n) {
+            portfolio.count(counter, n);
+        }
+
+        @Override
+        public long startTimer() {
+            return portfolio.startTimer();
+        }
+
+        @Override
+        public void stopTimer(Timer timer, long start) {
+            portfolio.stopTimer(timer, start);
+        }
+
+        @Override
+        public void improvement(int makespan) {
+            portfolio.improvement(makespan);
+        }
+
+        @Override
+        public void trace(long iteration, int currentMakespan, int bestMakespan) {
+            iterations.incrementAndGet();
+        }
+
+        @Override
+        public Snapshot snapshot() {
+            return portfolio.snapshot();
+        }
+    }
+}
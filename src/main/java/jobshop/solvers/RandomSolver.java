@@ -3,50 +3,148 @@ package jobshop.solvers;
 import jobshop.*;
 import jobshop.encodings.JobNumbers;
 
-import java.util.Optional;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
 public class RandomSolver implements Solver {
 
+    // number of workers sampling orders, each with its own random generator split from the seed
+    private final int threads;
+    private final long seed;
+    // number of random orders sampled, shared between the workers (0: until the deadline)
+    private final long maxSamples;
+
+    public RandomSolver() {
+        this(1, 0);
+    }
+
+    public RandomSolver(int threads, long seed) {
+        this(threads, seed, 0);
+    }
+
+    public RandomSolver(int threads, long seed, long maxSamples) {
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+        this.maxSamples = maxSamples;
+    }
+
     @Override
     public Result solve(Instance instance, long deadline) {
-        Random generator = new Random(0);
+        return solve(instance, deadline, null, Metrics.NONE);
+    }
 
-        JobNumbers sol = new JobNumbers(instance);
+    /** Evaluates random job orders until the deadline, maxSamples samples or an order reaching the lower bound of the
+     * instance. Each schedule improving on the previous ones is passed to onImprovement (if not null), never
+     * concurrently. With a single thread the samples only depend on the seed. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics) {
+        return solve(instance, deadline, onImprovement, metrics, ALONE);
+    }
 
+    /** Same as above, only the samples better than `shared` being decoded. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics,
+                        IntSupplier shared) {
+        Incumbent incumbent = new Incumbent();
+        Consumer<Schedule> share = schedule -> incumbent.offer(schedule, improved -> {
+            metrics.improvement(improved.makespan());
+            if(onImprovement != null) {
+                onImprovement.accept(improved);
+            }
+        });
+
+        // the jobs in order are the first sample
+        JobNumbers sol = new JobNumbers(instance);
         for(int j = 0 ; j<instance.numJobs ; j++) {
             for(int t = 0 ; t<instance.numTasks ; t++) {
                 sol.jobs[sol.nextToSet++] = j;
             }
         }
-        Schedule best = sol.toSchedule();
-        while(deadline - System.currentTimeMillis() > 1) {
-            shuffleArray(sol.jobs, generator);
-            Schedule s = sol.toSchedule();
-            if(s.makespan() < best.makespan()) {
-                best = s;
+        share.accept(sol.toSchedule());
+        metrics.count(Metrics.Counter.DECODES);
+
+        SplittableRandom root = new SplittableRandom(seed);
+        if(threads == 1) {
+            sample(sol, deadline, maxSamples, root.split(), incumbent, shared, share, metrics);
+        } else {
+            List<Callable<Void>> workers = new ArrayList<>(threads);
+            for(int t = 0 ; t < threads ; t++) {
+                SplittableRandom random = root.split();
+                // the samples are split evenly, the first workers taking the remainder
+                long samples = maxSamples <= 0 ? 0 : maxSamples / threads + (t < maxSamples % threads ? 1 : 0);
+                if(maxSamples > 0 && samples == 0) {
+                    break;
+                }
+                JobNumbers own = new JobNumbers(instance);
+                System.arraycopy(sol.jobs, 0, own.jobs, 0, sol.jobs.length);
+                own.nextToSet = sol.nextToSet;
+                workers.add(() -> {
+                    sample(own, deadline, samples, random, incumbent, shared, share, metrics);
+                    return null;
+                });
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                for(Future<Void> worker : pool.invokeAll(workers)) {
+                    worker.get();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException("A worker of the random solver failed", e);
+            } finally {
+                pool.shutdown();
             }
         }
 
+        Result.ExitCause exitCause = incumbent.makespan() <= instance.lowerBound().value() ? Result.ExitCause.ProvedOptimal
+                : deadline <= System.currentTimeMillis() ? Result.ExitCause.Timeout : Result.ExitCause.Blocked;
+        return new Result(instance, incumbent.schedule(), exitCause, metrics.snapshot());
+    }
 
-        return new Result(instance, best, Result.ExitCause.Timeout);
+    /** Loop of a worker: shuffles the order in place and computes its makespan without building a schedule, at most
+     * maxSamples times (if positive). A schedule is only built for the orders improving on the best one, of this
+     * solver and of the shared ones. Samples are counted locally and reported at the end, the workers would otherwise
+     * contend on the counters of the metrics. */
+    private static void sample(JobNumbers sol, long deadline, long maxSamples, SplittableRandom generator,
+                               Incumbent incumbent, IntSupplier shared, Consumer<Schedule> share, Metrics metrics) {
+        // all workers stop once one of them, or a solver sharing its schedules, reaches the lower bound
+        int lowerBound = sol.instance.lowerBound().value();
+        long samples = 0;
+        long start = metrics.startTimer();
+        while(incumbent.makespan() > lowerBound && shared.getAsInt() > lowerBound && deadline > System.currentTimeMillis()
+                && (maxSamples <= 0 || samples < maxSamples)) {
+            samples++;
+            shuffleArray(sol.jobs, generator);
+            int makespan = sol.makespan();
+            if(makespan < incumbent.makespan() && makespan < shared.getAsInt()) {
+                long decodeStart = metrics.startTimer();
+                Schedule s = sol.toSchedule();
+                metrics.stopTimer(Metrics.Timer.DECODE, decodeStart);
+                metrics.count(Metrics.Counter.DECODES);
+                share.accept(s);
+            }
+        }
+        metrics.stopTimer(Metrics.Timer.EVALUATION, start);
+        metrics.count(Metrics.Counter.ITERATIONS, samples);
+        metrics.count(Metrics.Counter.EVALUATIONS, samples);
     }
 
     /** Simple Fisher–Yates array shuffling */
-    private static void shuffleArray(int[] array, Random random)
+    private static void shuffleArray(int[] array, SplittableRandom random)
     {
-        int index;
         for (int i = array.length - 1; i > 0; i--)
         {
-            index = random.nextInt(i + 1);
-            if (index != i)
-            {
-                array[index] ^= array[i];
-                array[i] ^= array[index];
-                array[index] ^= array[i];
-            }
+            int index = random.nextInt(i + 1);
+            int tmp = array[index];
+            array[index] = array[i];
+            array[i] = tmp;
         }
     }
 }
-
-
@@ -0,0 +1,436 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.encodings.PackedResourceOrder;
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Task;
+import jobshop.solvers.DescentSolver.Insertion;
+import jobshop.solvers.DescentSolver.Swap;
+
+/** Evaluates the makespan of swap moves on a resource order without copying or decoding it.
+ *
+ * The evaluator is reset on a (feasible) resource order: it then caches the head (earliest start time)
+ * and tail (longest path from the end of the task to the end of the schedule) of every task, as well as
+ * a topological order of the disjunctive graph.
+ *
+ * A swap can then be evaluated in two ways :
+ *  - EXACT: the heads of the tasks that come after the swapped tasks in the topological order
+ *    are recomputed, all others are reused from the cache.
+ *  - ESTIMATE: the lower bound of Taillard is computed in constant time from the cached heads and tails.
+ *    It is only available for swaps of adjacent tasks, other swaps fall back to the exact evaluation.
+ *
+ * Insertions (see DescentSolver.Insertion) are evaluated as swaps. Whether an insertion keeps the order feasible
+ * can be checked beforehand in constant time with canInsert().
+ *
+ * Evaluating a swap does not modify the cached state: several threads may evaluate swaps at the same time
+ * as long as each one uses its own Scratch (see newScratch()) and no thread resets the evaluator meanwhile.
+ *
+ * Tasks are identified by their id : job * numTasks + task
+ */
+public class SwapEvaluator {
+
+    public enum Mode {
+        EXACT, ESTIMATE
+    }
+
+    /** Makespan returned for a swap that yields an infeasible resource order. */
+    public static final int INFEASIBLE = Integer.MAX_VALUE;
+
+    /** Buffers used to evaluate a swap, they must not be shared between threads. */
+    public static class Scratch {
+        final int[] newHeads;
+        final int[] inDegree;
+        final int[] queue;
+        // machine links that differ from the cached ones for the swap being evaluated:
+        // task id has the links overridePred[id] and overrideSucc[id] if overrideStamp[id] == stamp
+        final int[] overrideStamp;
+        final int[] overridePred;
+        final int[] overrideSucc;
+        int stamp;
+
+        Scratch(int size) {
+            newHeads = new int[size];
+            inDegree = new int[size];
+            queue = new int[size];
+            overrideStamp = new int[size];
+            overridePred = new int[size];
+            overrideSucc = new int[size];
+        }
+
+        /** Starts a new evaluation: forgets all overridden links. */
+        void nextStamp() {
+            if(++stamp == Integer.MAX_VALUE) {
+                java.util.Arrays.fill(overrideStamp, 0);
+                stamp = 1;
+            }
+        }
+    }
+
+    public final Instance instance;
+    public final Mode mode;
+
+    private final int numTasks;
+    private final int numJobs;
+    private final int size;
+
+    // duration and machine of each task
+    private final int[] duration;
+    private final int[] machine;
+    // for each machine, the ids of the tasks in the order in which they are executed
+    private final int[][] sequence;
+    // for each task, its position in the sequence of its machine
+    private final int[] positionOnMachine;
+    // for each task, its predecessor and successor on its machine (-1 if none)
+    private final int[] machinePred;
+    private final int[] machineSucc;
+
+    // cached values for the current resource order
+    private final int[] heads;
+    private final int[] tails;
+    private final int[] topoOrder;
+    private final int[] topoPosition;
+    // prefixMaxEnd[i] is the greatest end time among the i first tasks of the topological order
+    private final int[] prefixMaxEnd;
+    // for each task, the predecessor (on its job or machine) that ends exactly when it starts (-1 if it starts at 0)
+    private final int[] criticalPred;
+    private int makespan;
+
+    // scratch buffers used by the methods that do not take one
+    private final Scratch scratch;
+
+    public SwapEvaluator(Instance instance, Mode mode) {
+        this.instance = instance;
+        this.mode = mode;
+        this.numTasks = instance.numTasks;
+        this.numJobs = instance.numJobs;
+        this.size = numJobs * numTasks;
+
+        duration = new int[size];
+        machine = new int[size];
+        for(int j = 0 ; j < numJobs ; j++) {
+            for(int t = 0 ; t < numTasks ; t++) {
+                duration[j * numTasks + t] = instance.duration(j, t);
+                machine[j * numTasks + t] = instance.machine(j, t);
+            }
+        }
+        sequence = new int[instance.numMachines][numJobs];
+        positionOnMachine = new int[size];
+        machinePred = new int[size];
+        machineSucc = new int[size];
+
+        heads = new int[size];
+        tails = new int[size];
+        topoOrder = new int[size];
+        topoPosition = new int[size];
+        prefixMaxEnd = new int[size + 1];
+        criticalPred = new int[size];
+
+        scratch = new Scratch(size);
+    }
+
+    /** Creates buffers allowing to evaluate swaps concurrently with other threads. */
+    public Scratch newScratch() {
+        return new Scratch(size);
+    }
+
+    /** Caches the heads, tails and topological order of the given resource order.
+     * @throws IllegalArgumentException if the resource order is not feasible. */
+    public void reset(ResourceOrder order) {
+        for(int m = 0 ; m < sequence.length ; m++) {
+            for(int i = 0 ; i < numJobs ; i++) {
+                Task task = order.tasksByMachine[m][i];
+                sequence[m][i] = task.job * numTasks + task.task;
+            }
+        }
+        resetFromSequence();
+    }
+
+    /** Same as reset(ResourceOrder) for the packed representation, which already uses the same task ids. */
+    public void reset(PackedResourceOrder order) {
+        for(int m = 0 ; m < sequence.length ; m++) {
+            System.arraycopy(order.tasks, m * numJobs, sequence[m], 0, numJobs);
+        }
+        resetFromSequence();
+    }
+
+    private void resetFromSequence() {
+        for(int m = 0 ; m < sequence.length ; m++) {
+            for(int i = 0 ; i < numJobs ; i++) {
+                updateMachineLinks(m, i);
+            }
+        }
+
+        // Kahn's algorithm on the whole graph to obtain a topological order and the heads
+        scratch.nextStamp();
+        for(int id = 0 ; id < size ; id++) {
+            scratch.inDegree[id] = (id % numTasks > 0 ? 1 : 0) + (machinePred[id] >= 0 ? 1 : 0);
+        }
+        int processed = topologicalHeads(0, size, heads, scratch);
+        if(processed < size) {
+            throw new IllegalArgumentException("Resource order is not feasible");
+        }
+        System.arraycopy(scratch.queue, 0, topoOrder, 0, size);
+
+        prefixMaxEnd[0] = 0;
+        for(int pos = 0 ; pos < size ; pos++) {
+            int id = topoOrder[pos];
+            topoPosition[id] = pos;
+            prefixMaxEnd[pos + 1] = Math.max(prefixMaxEnd[pos], heads[id] + duration[id]);
+            // as in Schedule.criticalPath(), the predecessor on the job is preferred
+            if(heads[id] == 0)
+                criticalPred[id] = -1;
+            else if(id % numTasks > 0 && heads[id - 1] + duration[id - 1] == heads[id])
+                criticalPred[id] = id - 1;
+            else
+                criticalPred[id] = machinePred[id];
+        }
+        makespan = prefixMaxEnd[size];
+
+        // tails in reverse topological order
+        for(int pos = size - 1 ; pos >= 0 ; pos--) {
+            int id = topoOrder[pos];
+            int tail = 0;
+            if(id % numTasks < numTasks - 1) {
+                tail = tails[id + 1] + duration[id + 1];
+            }
+            int ms = machineSucc[id];
+            if(ms >= 0) {
+                tail = Math.max(tail, tails[ms] + duration[ms]);
+            }
+            tails[id] = tail;
+        }
+    }
+
+    /** Makespan of the resource order this evaluator was last reset on. */
+    public int makespan() {
+        return makespan;
+    }
+
+    /** Fills `blocks` with the blocks of a critical path of the order this evaluator was last reset on,
+     * in O(numJobs * numTasks). The critical path is the one Schedule.criticalPath() would return. */
+    public void criticalBlocks(CriticalBlocks blocks) {
+        blocks.clear();
+        // the path ends with the last task of the first job finishing at the makespan
+        int id = -1;
+        for(int j = 0 ; j < numJobs && id < 0 ; j++) {
+            int last = j * numTasks + numTasks - 1;
+            if(heads[last] + duration[last] == makespan)
+                id = last;
+        }
+        // walk the path backward, the current block being the tasks from id to blockEnd
+        int blockEnd = id;
+        while(id >= 0) {
+            int pred = criticalPred[id];
+            if(pred < 0 || machine[pred] != machine[id]) {
+                if(blockEnd != id)
+                    blocks.add(machine[id], positionOnMachine[id], positionOnMachine[blockEnd]);
+                blockEnd = pred;
+            }
+            id = pred;
+        }
+    }
+
+    /** Returns the makespan (or its estimation in ESTIMATE mode) of the resource order obtained by
+     * applying the swap on the order this evaluator was last reset on. The cached order is left untouched.
+     * Returns INFEASIBLE if the swap creates a cycle. */
+    public int evaluate(Swap swap) {
+        if(mode == Mode.ESTIMATE && Math.abs(swap.t1 - swap.t2) == 1) {
+            return estimate(swap);
+        }
+        return exact(swap);
+    }
+
+    /** Same as evaluate(swap) but only guarantees an exact result when the makespan is lower than the given bound.
+     * Otherwise a value greater or equal to the bound is returned.
+     *
+     * In ESTIMATE mode, the lower bound is used to skip the exact evaluation of swaps that cannot beat the bound,
+     * so that a solver looking for the best neighbor follows the same trajectory as in EXACT mode. */
+    public int evaluate(Swap swap, int bound) {
+        return evaluate(swap, bound, scratch);
+    }
+
+    /** Same as evaluate(swap, bound), using the given buffers. */
+    public int evaluate(Swap swap, int bound, Scratch scratch) {
+        if(mode == Mode.ESTIMATE && Math.abs(swap.t1 - swap.t2) == 1 && estimate(swap) >= bound) {
+            return bound;
+        }
+        return exact(swap, scratch);
+    }
+
+    /** Exact makespan of the resource order obtained by applying the swap, regardless of the mode. */
+    public int exact(Swap swap) {
+        return exact(swap, scratch);
+    }
+
+    /** Same as exact(swap), using the given buffers. */
+    public int exact(Swap swap, Scratch scratch) {
+        int machine = swap.machine;
+        int first = Math.min(swap.t1, swap.t2);
+        int second = Math.max(swap.t1, swap.t2);
+        if(first == second) {
+            return makespan;
+        }
+
+        // override the machine links around the swapped tasks
+        // (an insertion shifts all the tasks in between, which all get new links)
+        scratch.nextStamp();
+        int startPos = size;
+        if(swap instanceof Insertion) {
+            overrideLinks(swap, first - 1, second + 1, scratch);
+            for(int i = first ; i <= second + 1 ; i++) {
+                startPos = Math.min(startPos, topoPositionAt(machine, i));
+            }
+        } else {
+            overrideLinks(swap, first - 1, first + 1, scratch);
+            overrideLinks(swap, second - 1, second + 1, scratch);
+
+            // only the tasks whose machine predecessor changed may see their head change,
+            // they are the ones in positions first, first+1, second and second+1 (before and after the swap)
+            startPos = Math.min(startPos, topoPositionAt(machine, first));
+            startPos = Math.min(startPos, topoPositionAt(machine, first + 1));
+            startPos = Math.min(startPos, topoPositionAt(machine, second));
+            startPos = Math.min(startPos, topoPositionAt(machine, second + 1));
+        }
+
+        // Kahn's algorithm restricted to the tasks after startPos in the topological order,
+        // tasks before it keep their cached head
+        for(int pos = startPos ; pos < size ; pos++) {
+            int id = topoOrder[pos];
+            int degree = 0;
+            if(id % numTasks > 0 && topoPosition[id - 1] >= startPos)
+                degree++;
+            int mp = machinePred(id, scratch);
+            if(mp >= 0 && topoPosition[mp] >= startPos)
+                degree++;
+            scratch.inDegree[id] = degree;
+        }
+        int processed = topologicalHeads(startPos, size - startPos, scratch.newHeads, scratch);
+
+        if(processed < size - startPos) {
+            return INFEASIBLE;
+        }
+        int result = prefixMaxEnd[startPos];
+        for(int i = 0 ; i < processed ; i++) {
+            int id = scratch.queue[i];
+            result = Math.max(result, scratch.newHeads[id] + duration[id]);
+        }
+        return result;
+    }
+
+    /** Whether moving the task in position `from` of the machine to position `to` keeps the order feasible,
+     * in constant time from the cached heads and tails (the test of Balas and Vazacopoulos).
+     *
+     * Moving u after v (from < to) creates a cycle only if there is a path from the job successor of u to v,
+     * whose tail is then at least the duration plus the tail of v. Symmetrically, moving u before v (to < from)
+     * creates a cycle only if there is a path from v to the job predecessor of u, whose head is then at least
+     * the end of v. The test is sufficient: a move it rejects may still be feasible. */
+    public boolean canInsert(int machine, int from, int to) {
+        int u = sequence[machine][from];
+        int v = sequence[machine][to];
+        if(from < to) {
+            return u % numTasks == numTasks - 1 || tails[u + 1] < duration[v] + tails[v];
+        }
+        return u % numTasks == 0 || heads[u - 1] < heads[v] + duration[v];
+    }
+
+    /** Taillard's lower bound on the makespan obtained by swapping two adjacent tasks of a machine. */
+    public int estimate(Swap swap) {
+        int first = Math.min(swap.t1, swap.t2);
+        // u is executed just before v in the current order
+        int u = sequence[swap.machine][first];
+        int v = sequence[swap.machine][first + 1];
+        int mpU = machinePred[u];
+        int msV = machineSucc[v];
+
+        int headV = Math.max(jobPredEnd(v), mpU >= 0 ? heads[mpU] + duration[mpU] : 0);
+        int headU = Math.max(jobPredEnd(u), headV + duration[v]);
+        int tailU = Math.max(jobSuccTail(u), msV >= 0 ? tails[msV] + duration[msV] : 0);
+        int tailV = Math.max(jobSuccTail(v), tailU + duration[u]);
+
+        return Math.max(headV + duration[v] + tailV, headU + duration[u] + tailU);
+    }
+
+    /** Kahn's algorithm over the `count` tasks of the topological order starting at `startPos`
+     * whose in-degree has been initialized in the scratch. Heads are written in `target` and the processed
+     * tasks in the queue of the scratch. Returns the number of processed tasks, which is less than `count`
+     * if there is a cycle. */
+    private int topologicalHeads(int startPos, int count, int[] target, Scratch scratch) {
+        int[] inDegree = scratch.inDegree;
+        int[] queue = scratch.queue;
+        int tail = 0;
+        for(int i = 0 ; i < count ; i++) {
+            int id = startPos == 0 && count == size ? i : topoOrder[startPos + i];
+            if(inDegree[id] == 0)
+                queue[tail++] = id;
+        }
+        int head = 0;
+        while(head < tail) {
+            int id = queue[head++];
+            int start = 0;
+            if(id % numTasks > 0)
+                start = endOf(id - 1, startPos, target);
+            int mp = machinePred(id, scratch);
+            if(mp >= 0)
+                start = Math.max(start, endOf(mp, startPos, target));
+            target[id] = start;
+
+            if(id % numTasks < numTasks - 1 && --inDegree[id + 1] == 0)
+                queue[tail++] = id + 1;
+            int ms = machineSucc(id, scratch);
+            if(ms >= 0 && --inDegree[ms] == 0)
+                queue[tail++] = ms;
+        }
+        return tail;
+    }
+
+    private int machinePred(int id, Scratch scratch) {
+        return scratch.overrideStamp[id] == scratch.stamp ? scratch.overridePred[id] : machinePred[id];
+    }
+
+    private int machineSucc(int id, Scratch scratch) {
+        return scratch.overrideStamp[id] == scratch.stamp ? scratch.overrideSucc[id] : machineSucc[id];
+    }
+
+    /** End time of a task during a (partial) topological pass starting at startPos. */
+    private int endOf(int id, int startPos, int[] target) {
+        if(startPos > 0 && topoPosition[id] < startPos)
+            return heads[id] + duration[id];
+        return target[id] + duration[id];
+    }
+
+    private int jobPredEnd(int id) {
+        return id % numTasks > 0 ? heads[id - 1] + duration[id - 1] : 0;
+    }
+
+    private int jobSuccTail(int id) {
+        return id % numTasks < numTasks - 1 ? tails[id + 1] + duration[id + 1] : 0;
+    }
+
+    /** Id of the task in the given position of the machine sequence, once the move is applied. */
+    private int movedAt(Swap move, int index) {
+        return sequence[move.machine][move.sourceIndex(index)];
+    }
+
+    /** Position in the topological order of the task in the given position of the machine
+     * (size if there is no such task). */
+    private int topoPositionAt(int machine, int index) {
+        return index < numJobs ? topoPosition[sequence[machine][index]] : size;
+    }
+
+    /** Records in the scratch the machine links of the tasks in positions from..to of the moved sequence. */
+    private void overrideLinks(Swap move, int from, int to, Scratch scratch) {
+        for(int i = Math.max(0, from) ; i <= Math.min(numJobs - 1, to) ; i++) {
+            int id = movedAt(move, i);
+            scratch.overrideStamp[id] = scratch.stamp;
+            scratch.overridePred[id] = i > 0 ? movedAt(move, i - 1) : -1;
+            scratch.overrideSucc[id] = i < numJobs - 1 ? movedAt(move, i + 1) : -1;
+        }
+    }
+
+    private void updateMachineLinks(int machine, int index) {
+        int id = sequence[machine][index];
+        positionOnMachine[id] = index;
+        machinePred[id] = index > 0 ? sequence[machine][index - 1] : -1;
+        machineSucc[id] = index < numJobs - 1 ? sequence[machine][index + 1] : -1;
+    }
+}
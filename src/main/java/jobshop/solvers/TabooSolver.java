@@ -1,14 +1,21 @@
 package jobshop.solvers;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
 import jobshop.Instance;
+import jobshop.Metrics;
 import jobshop.Result;
 import jobshop.Schedule;
 import jobshop.Solver;
 import jobshop.Result.ExitCause;
+import jobshop.encodings.PackedResourceOrder;
 import jobshop.encodings.ResourceOrder;
 import jobshop.encodings.Task;
 import jobshop.solvers.GreedySolver.PriorityESTRule;
@@ -22,22 +29,75 @@ public class TabooSolver implements Solver {
 	private PriorityESTRule priorityESTRule;
 	private int dureeTaboo;
 	private int maxIter;
+	private SwapEvaluator.Mode evaluationMode;
+	// Number of threads evaluating the neighborhood (1: sequential evaluation)
+	private int threads;
+	// Number of iterations without improving the best solution after which the search stops (0: no limit)
+	private int maxStagnation;
+	// Neighborhood explored at each iteration
+	private Neighborhood neighborhood;
 	
 	// 2 constructors: the default and one with the EST restriction
 	public TabooSolver(PriorityRule rule, int dureeTaboo, int maxIter) {
+		this(rule, dureeTaboo, maxIter, SwapEvaluator.Mode.ESTIMATE);
+	}
+	
+	public TabooSolver(PriorityESTRule ruleEST, int dureeTaboo, int maxIter) {
+		this(ruleEST, dureeTaboo, maxIter, SwapEvaluator.Mode.ESTIMATE);
+	}
+	
+	// Same constructors, choosing how the neighbors are evaluated
+	public TabooSolver(PriorityRule rule, int dureeTaboo, int maxIter, SwapEvaluator.Mode evaluationMode) {
+		this(rule, dureeTaboo, maxIter, evaluationMode, 1);
+	}
+	
+	public TabooSolver(PriorityESTRule ruleEST, int dureeTaboo, int maxIter, SwapEvaluator.Mode evaluationMode) {
+		this(ruleEST, dureeTaboo, maxIter, evaluationMode, 1);
+	}
+	
+	// Same constructors, evaluating the neighborhood with several threads.
+	// The trajectory does not depend on the number of threads.
+	public TabooSolver(PriorityRule rule, int dureeTaboo, int maxIter, SwapEvaluator.Mode evaluationMode, int threads) {
+		this(rule, dureeTaboo, maxIter, evaluationMode, threads, 0);
+	}
+	
+	public TabooSolver(PriorityESTRule ruleEST, int dureeTaboo, int maxIter, SwapEvaluator.Mode evaluationMode, int threads) {
+		this(ruleEST, dureeTaboo, maxIter, evaluationMode, threads, 0);
+	}
+	
+	// Same constructors, also stopping after maxStagnation iterations without improvement.
+	// With maxIter <= 0 the search is only bounded by the deadline and the stagnation limit.
+	// The last ones also choose the neighborhood (N5 by default).
+	public TabooSolver(PriorityRule rule, int dureeTaboo, int maxIter, SwapEvaluator.Mode evaluationMode, int threads, int maxStagnation) {
+		this(rule, dureeTaboo, maxIter, evaluationMode, threads, maxStagnation, Neighborhood.N5);
+	}
+	
+	public TabooSolver(PriorityRule rule, int dureeTaboo, int maxIter, SwapEvaluator.Mode evaluationMode, int threads, int maxStagnation, Neighborhood neighborhood) {
 		super();
 		this.priorityRule = rule;
 		this.priorityESTRule = null;
 		this.dureeTaboo = dureeTaboo;
 		this.maxIter = maxIter;
+		this.evaluationMode = evaluationMode;
+		this.threads = threads;
+		this.maxStagnation = maxStagnation;
+		this.neighborhood = neighborhood;
 	}
 	
-	public TabooSolver(PriorityESTRule ruleEST, int dureeTaboo, int maxIter) {
+	public TabooSolver(PriorityESTRule ruleEST, int dureeTaboo, int maxIter, SwapEvaluator.Mode evaluationMode, int threads, int maxStagnation) {
+		this(ruleEST, dureeTaboo, maxIter, evaluationMode, threads, maxStagnation, Neighborhood.N5);
+	}
+	
+	public TabooSolver(PriorityESTRule ruleEST, int dureeTaboo, int maxIter, SwapEvaluator.Mode evaluationMode, int threads, int maxStagnation, Neighborhood neighborhood) {
 		super();
 		this.priorityESTRule = ruleEST;
 		this.priorityRule = null;
 		this.dureeTaboo = dureeTaboo;
 		this.maxIter = maxIter;
+		this.evaluationMode = evaluationMode;
+		this.threads = threads;
+		this.maxStagnation = maxStagnation;
+		this.neighborhood = neighborhood;
 	}
 	
 	
@@ -47,6 +107,25 @@ public class TabooSolver implements Solver {
 	
     @Override
     public Result solve(Instance instance, long deadline) {
+    	return solve(instance, deadline, null);
+    }
+    
+    /** Runs the taboo search until the deadline, maxIter iterations or maxStagnation iterations without improvement,
+     * whichever comes first. Each improving solution is passed to onImprovement (if not null) when found. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement) {
+    	return solve(instance, deadline, onImprovement, Metrics.NONE);
+    }
+    
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics) {
+    	return solve(instance, deadline, onImprovement, metrics, ALONE);
+    }
+    
+    /** Same as above, also stopping when `shared` reaches the lower bound of the instance. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics,
+                        IntSupplier shared) {
     	// Choosing rule (SPT / LRPT / EST_SPT / EST_LRPT)
     	GreedySolver greedy = null;
     	if(priorityESTRule == null) {
@@ -60,172 +139,223 @@ public class TabooSolver implements Solver {
     	}
     	
         // Generating a viable solution
-    	Result result = greedy.solve(instance, deadline);
+    	Result result = greedy.solve(instance, deadline, null, metrics);
     	Schedule initialSolution = result.schedule;
+    	long start = metrics.startTimer();
     	ResourceOrder initialResourceOrder = new ResourceOrder(initialSolution);
+    	metrics.stopTimer(Metrics.Timer.COPY, start);
+    	if(onImprovement != null) {
+    		onImprovement.accept(initialSolution);
+    	}
         
     	// Declaring all solution types
-    	ResourceOrder bestRO         = initialResourceOrder; // s*
-    	ResourceOrder currentRO      = bestRO.copy();		 // s
-    	ResourceOrder bestNeighborRO = bestRO.copy();		 // s' 
-    	ResourceOrder neighborRO;							 // s''
+    	ResourceOrder currentRO = initialResourceOrder;               // s (s' is obtained by applying bestSwap on it)
+    	PackedResourceOrder bestRO = new PackedResourceOrder(currentRO); // s* (overwritten in place when improved)
+    	// The neighbors are evaluated incrementally from the heads and tails of currentRO
+    	SwapEvaluator evaluator = new SwapEvaluator(instance, this.evaluationMode);
     	
-		// Defining the sTaboo variables
-    	int totalTasks = instance.numJobs * instance.numTasks;
-		int[][] sTaboo = new int[totalTasks][totalTasks];
-		// Initializing sTaboo with all 0
-		for (int[] row : sTaboo) {
-			Arrays.fill(row, 0);
-		}
+		// sTaboo[taskID1][taskID2]: last iteration at which the swap of the two tasks is forbidden (0 by default).
+		// Only the forbidden swaps are stored, so the memory used does not depend on the size of the instance.
+		TabuMemory sTaboo = new TabuMemory(this.dureeTaboo);
 		
     	// Declaring other variables
-		List<Block> criticalBlockList;
-    	int TASK_PER_JOB, j1, i1, j2, i2, taskID1, taskID2, forbiddenTaskID1, forbiddenTaskID2;
+		CriticalBlocks criticalBlocks = new CriticalBlocks(instance);
+		// Neighbors of the current iteration, and the non-taboo ones in the order in which they are generated
+		List<Swap> moves = new ArrayList<>();
+		List<Swap> candidates = new ArrayList<>();
     	int bestMakespan = initialSolution.makespan();
-    	int bestNeighborMakespan, neighborMakespan;
-    	boolean updated;
+    	int currentMakespan = bestMakespan;
+    	int bestNeighborMakespan;
+    	long bestNeighbor;
+    	Swap bestSwap;
     	
-    	// Iteration Counter
+    	// Pool and buffers used to evaluate the neighborhood in parallel
+    	ForkJoinPool pool = this.threads > 1 ? new ForkJoinPool(this.threads) : null;
+    	SwapEvaluator.Scratch[] scratches = new SwapEvaluator.Scratch[Math.max(1, this.threads)];
+    	for(int i = 0; i < scratches.length; i++) {
+    		scratches[i] = evaluator.newScratch();
+    	}
+    	
+    	// Iteration Counter, and last iteration at which the best solution improved
     	int k = 0;
+    	int lastImprovement = 0;
+    	// No schedule can be shorter than the lower bound: the search stops when it reaches it
+    	int lowerBound = instance.lowerBound().value();
 
-        while (/*deadline > System.currentTimeMillis() &&*/ k <= this.maxIter) {
+    	try {
+        while (bestMakespan > lowerBound && shared.getAsInt() > lowerBound
+        		&& deadline > System.currentTimeMillis()
+        		&& (this.maxIter <= 0 || k <= this.maxIter)
+        		&& (this.maxStagnation <= 0 || k - lastImprovement < this.maxStagnation)) {
         	// ***************** 1. k <- k + 1 ******************************************************** //
             k++;
+            metrics.count(Metrics.Counter.ITERATIONS);
             
             // ***************** 2. Choose the best neighbor s' that is not in sTaboo ***************** //
-            bestNeighborMakespan = Integer.MAX_VALUE;
-            forbiddenTaskID1 = -1; 
-            forbiddenTaskID2 = -1;
-            updated = false;
+            candidates.clear();
+            sTaboo.expire(k);
     		
             // We first take the critical path from the currentRO (s)
-    		currentRO = bestNeighborRO.copy(); // (s <- s')
-        	criticalBlockList = this.blocksOfCriticalPath(currentRO);
+            start = metrics.startTimer();
+        	evaluator.reset(currentRO);
+        	evaluator.criticalBlocks(criticalBlocks);
+        	metrics.stopTimer(Metrics.Timer.CRITICAL_PATH, start);
         	
-            for(Block b : criticalBlockList) {
-                for(Swap s : neighbors(b)) {
-                	// Extract the current index values for sTaboo
-        			TASK_PER_JOB = currentRO.instance.numTasks;
-        			j1 = currentRO.tasksByMachine[s.machine][s.t1].job;
-         			j2 = currentRO.tasksByMachine[s.machine][s.t2].job;
-        			i1 = currentRO.tasksByMachine[s.machine][s.t1].task;
-        			i2 = currentRO.tasksByMachine[s.machine][s.t2].task;
-        			taskID1 = j1 * TASK_PER_JOB + i1;
-        			taskID2 = j2 * TASK_PER_JOB + i2;
-        			
-                    // Check if it is a forbidden swap
-                    if(sTaboo[taskID1][taskID2] < k) {
-                    	updated= true;
-                        neighborRO = currentRO.copy();
-                        // We apply the swap on the current Resource Order and we schedule it to find its makespan
-                        s.applyOn(neighborRO);
-                        neighborMakespan = neighborRO.toSchedule().makespan();                        
-                        
-                        if(neighborMakespan < bestNeighborMakespan) {
-                        	// We forbid the opposite permutation of the given tasks (in index taskID1 and taskID2)
-                        	forbiddenTaskID1 = taskID1;
-                        	forbiddenTaskID2 = taskID2;
-                            // We have checked all neighbors and we have chosen the best one: bestNeighborRO
-                        	bestNeighborMakespan = neighborMakespan;
-                            bestNeighborRO = neighborRO.copy();
-                        }
-                    }
+        	start = metrics.startTimer();
+            this.neighborhood.movesOf(evaluator, criticalBlocks, moves);
+            for(Swap s : moves) {
+                // Check if it is a forbidden move
+                if(!isTaboo(s, currentRO, sTaboo, k)) {
+                	candidates.add(s);
                 }
             }
+            // Makespan of the neighbors obtained by applying the swaps, without copying the resource order.
+            // The best one is the first with the smallest makespan.
+            metrics.stopTimer(Metrics.Timer.NEIGHBORHOOD, start);
+            start = metrics.startTimer();
+            bestNeighbor = this.bestCandidate(evaluator, candidates, scratches, pool);
+            metrics.stopTimer(Metrics.Timer.EVALUATION, start);
+            metrics.count(Metrics.Counter.EVALUATIONS, candidates.size());
+            
             // ************************ 3. Add bestNeighborSolution (s') to sTaboo *************************** //
-            // If it is not updated it means all solutions are forbidden
-            if(updated) {
-            	sTaboo[forbiddenTaskID2][forbiddenTaskID1] = this.dureeTaboo + k;
+            // If there is no candidate it means all solutions are forbidden
+            if(bestNeighbor != Long.MAX_VALUE) {
+            	bestNeighborMakespan = (int) (bestNeighbor >>> 32);
+            	currentMakespan = bestNeighborMakespan;
+            	bestSwap = candidates.get((int) bestNeighbor);
+            	// We forbid the opposite permutation of the given tasks
+            	forbidReverse(bestSwap, currentRO, sTaboo, this.dureeTaboo + k);
+            	// (s <- s')
+            	bestSwap.applyOn(currentRO);
+            	metrics.count(Metrics.Counter.MOVES);
             	// ******************** 4. If s' is better than s* then s* <- s' ************************** //
                 if(bestNeighborMakespan < bestMakespan) {
                 	bestMakespan = bestNeighborMakespan;
-                	bestRO = bestNeighborRO.copy();
+                	start = metrics.startTimer();
+                	bestRO.load(currentRO);
+                	metrics.stopTimer(Metrics.Timer.COPY, start);
+                	lastImprovement = k;
+                	metrics.improvement(bestMakespan);
+                	if(onImprovement != null) {
+                		start = metrics.startTimer();
+                		Schedule improved = bestRO.toSchedule();
+                		metrics.stopTimer(Metrics.Timer.DECODE, start);
+                		metrics.count(Metrics.Counter.DECODES);
+                		onImprovement.accept(improved);
+                	}
                 }
             } 
+            metrics.trace(k, currentMakespan, bestMakespan);
         }
+    	} finally {
+    		if(pool != null) {
+    			pool.shutdown();
+    		}
+    	}
     	// We find the exit cause in order to create the result we will return
     	ExitCause exitCause = null;
-    	if(deadline <= System.currentTimeMillis()) {
+    	if(bestMakespan <= lowerBound) {
+    		exitCause = ExitCause.ProvedOptimal;
+    	} else if(deadline <= System.currentTimeMillis()) {
     		exitCause = ExitCause.Timeout;
-    	} else if(k >= this.maxIter) {
-    		exitCause = ExitCause.Blocked;
     	} else {
-    		exitCause = ExitCause.ProvedOptimal;
+    		// the iteration or stagnation limit was reached
+    		exitCause = ExitCause.Blocked;
     	}
-    	return new Result(instance, bestRO.toSchedule(), exitCause);
+    	start = metrics.startTimer();
+    	Schedule bestSolution = bestRO.toSchedule();
+    	metrics.stopTimer(Metrics.Timer.DECODE, start);
+    	metrics.count(Metrics.Counter.DECODES);
+    	return new Result(instance, bestSolution, exitCause, metrics.snapshot());
     }
-    // ************************************************************************************************************* //
     
+    /** A move is taboo if it puts back in their former order two tasks it reverses.
+     * sTaboo(a, b) forbids the moves executing a before b: a swap reverses the swapped tasks, an insertion reverses
+     * the moved task and each task between its two positions. */
+    private static boolean isTaboo(Swap move, ResourceOrder order, TabuMemory sTaboo, int k) {
+    	int numTasks = order.instance.numTasks;
+    	Task[] tasks = order.tasksByMachine[move.machine];
+    	int before = Math.min(move.t1, move.t2);
+    	int after = Math.max(move.t1, move.t2);
+    	if(!(move instanceof Insertion)) {
+    		return sTaboo.expiry(id(tasks[before], numTasks), id(tasks[after], numTasks)) >= k;
+    	}
+    	int moved = id(tasks[move.t1], numTasks);
+    	for(int i = before; i <= after; i++) {
+    		if(i == move.t1)
+    			continue;
+    		int other = id(tasks[i], numTasks);
+    		int expiry = i < move.t1 ? sTaboo.expiry(other, moved) : sTaboo.expiry(moved, other);
+    		if(expiry >= k)
+    			return true;
+    	}
+    	return false;
+    }
     
-    // ************************************************************************************************************* //
-    // ********************************** Copied functions from DescentSolver ************************************** //
-    // ************************************************************************************************************* //
+    /** Forbids until the given iteration the moves that would undo the given move, before it is applied. */
+    private static void forbidReverse(Swap move, ResourceOrder order, TabuMemory sTaboo, int until) {
+    	int numTasks = order.instance.numTasks;
+    	Task[] tasks = order.tasksByMachine[move.machine];
+    	int before = Math.min(move.t1, move.t2);
+    	int after = Math.max(move.t1, move.t2);
+    	if(!(move instanceof Insertion)) {
+    		sTaboo.forbid(id(tasks[after], numTasks), id(tasks[before], numTasks), until);
+    		return;
+    	}
+    	int moved = id(tasks[move.t1], numTasks);
+    	for(int i = before; i <= after; i++) {
+    		if(i == move.t1)
+    			continue;
+    		int other = id(tasks[i], numTasks);
+    		if(i < move.t1)
+    			sTaboo.forbid(moved, other, until);
+    		else
+    			sTaboo.forbid(other, moved, until);
+    	}
+    }
     
-    /** Returns a list of all blocks of the critical path. */
-    private List<Block> blocksOfCriticalPath(ResourceOrder order) {
-     	List<Block> criticalBlockList = new ArrayList<>();
-     	Block currentBlock;
-     	// Obtain the critical task list from the resource order instance
-         Schedule criticalSchedule = order.toSchedule();
-         List<Task> criticalTaskList = criticalSchedule.criticalPath();
-         
-         int totalNumMachines = criticalSchedule.pb.numMachines;
-         int totalNumJobs     = criticalSchedule.pb.numJobs;
-         
-         Task currentTaskRO;
-         int currentTaskIndexRO, currentCriticalTaskIndex, firstTask, lastTask;
-         
-         // We check for all machines
-         for(int currentMachine = 0; currentMachine < totalNumMachines; currentMachine++) {
-         	currentTaskIndexRO = 0;
-             while(currentTaskIndexRO < (totalNumJobs-1)){
-                 currentTaskRO = order.tasksByMachine[currentMachine][currentTaskIndexRO];
-                 if (criticalTaskList.contains(currentTaskRO)) {
-                     currentCriticalTaskIndex = criticalTaskList.indexOf(currentTaskRO);
-                     //If the next task in the critical path is running in the same machine try find the last task index
-                     if(currentMachine == criticalSchedule.pb.machine(criticalTaskList.get(currentCriticalTaskIndex+1))) {
-                         firstTask = currentTaskIndexRO;
-                         while(currentCriticalTaskIndex < (criticalTaskList.size()-1) && currentMachine == criticalSchedule.pb.machine(criticalTaskList.get(currentCriticalTaskIndex+1))){
-                         	// We advance in the list
-                             currentCriticalTaskIndex++;
-                             // We have to also advance in the resource order
-                             currentTaskIndexRO++;
-                         }
-                         // Create and add the new block to the list
-                         lastTask = currentTaskIndexRO;
-                 	    currentBlock = new Block(currentMachine, firstTask, lastTask);
-                         criticalBlockList.add(currentBlock);
-                     }
-                 }
-                 // We move on to the next task in the resource order
-                 currentTaskIndexRO++;
-             }
-         }
-         return criticalBlockList;
-     }
-
-    /** For a given block, return the possible swaps for the Nowicki and Smutnicki neighborhood */
-    private List<Swap> neighbors(Block block) {
-    	List<Swap> swapList = new ArrayList<>();
-    	Swap swap1;
-    	Swap swap2;
-    	
-    	int machine   = block.machine;
-    	int firstTask = block.firstTask;
-    	int lastTask  = block.lastTask;
-    	
-    	// One single swap if there are just 2 elements in the block, two swaps if there are more than 2.
- 		if(firstTask + 1 == lastTask) {
- 			swap1 = new Swap(machine, firstTask, lastTask);
- 			swapList.add(swap1);
- 		} else {
- 			swap1 = new Swap(machine, firstTask, firstTask+1);
- 			swap2 = new Swap(machine, lastTask-1 , lastTask);
- 			swapList.add(swap1);
- 			swapList.add(swap2);
- 		}
-        return swapList;
+    private static int id(Task task, int numTasks) {
+    	return task.job * numTasks + task.task;
+    }
+    
+    /** Evaluates the candidates and returns the best one as (makespan << 32 | index in candidates), that is the first
+     * candidate with the smallest makespan. Returns Long.MAX_VALUE if there is no feasible candidate.
+     * When a pool is given, the candidates are split in contiguous chunks evaluated in parallel: the best of each
+     * chunk is exact and the smallest packed value is the one the sequential evaluation would have found. */
+    private long bestCandidate(SwapEvaluator evaluator, List<Swap> candidates, SwapEvaluator.Scratch[] scratches, ForkJoinPool pool) {
+    	int numChunks = Math.min(scratches.length, candidates.size());
+    	if(pool == null || numChunks <= 1) {
+    		return bestInRange(evaluator, candidates, 0, candidates.size(), scratches[0]);
+    	}
+    	List<Callable<Long>> chunks = new ArrayList<>(numChunks);
+    	for(int c = 0; c < numChunks; c++) {
+    		int from = c * candidates.size() / numChunks;
+    		int to = (c + 1) * candidates.size() / numChunks;
+    		SwapEvaluator.Scratch scratch = scratches[c];
+    		chunks.add(() -> bestInRange(evaluator, candidates, from, to, scratch));
+    	}
+    	long best = Long.MAX_VALUE;
+    	try {
+    		for(Future<Long> chunkBest : pool.invokeAll(chunks)) {
+    			best = Math.min(best, chunkBest.get());
+    		}
+    	} catch (InterruptedException | ExecutionException e) {
+    		throw new RuntimeException("Parallel evaluation of the neighborhood failed", e);
+    	}
+    	return best;
+    }
+    
+    private static long bestInRange(SwapEvaluator evaluator, List<Swap> candidates, int from, int to, SwapEvaluator.Scratch scratch) {
+    	long best = Long.MAX_VALUE;
+    	int bound = Integer.MAX_VALUE;
+    	for(int i = from; i < to; i++) {
+    		int makespan = evaluator.evaluate(candidates.get(i), bound, scratch);
+    		if(makespan < bound) {
+    			bound = makespan;
+    			best = ((long) makespan << 32) | i;
+    		}
+    	}
+    	return best;
     }
-		
     // ************************************************************************************************************* //
 }
@@ -0,0 +1,162 @@
+package jobshop.solvers;
+
+import java.util.Arrays;
+
+/** Taboo status of ordered pairs of tasks for TabooSolver.
+ *
+ * It behaves as a matrix expiry[a][b] of all pairs of task ids, initially filled with 0, in which a pair is taboo
+ * at iteration k if expiry[a][b] >= k. Since iterations only increase, a pair whose expiry is below the current
+ * iteration can be forgotten (it is equivalent to 0). Only the pairs that are still taboo are stored, in an open
+ * addressing hash table with primitive keys: the memory used is O(tenure) instead of O((numJobs * numTasks)^2).
+ *
+ * Pairs are forgotten in the order in which they were forbidden, which is also the order of their expiry
+ * as long as they are all forbidden for the same duration.
+ */
+class TabuMemory {
+
+    private static final long EMPTY = -1L;
+
+    // hash table: key (a << 32 | b) -> expiry, with linear probing
+    private long[] keys;
+    private int[] expiries;
+    private int mask;
+    private int size = 0;
+
+    // pairs in the order in which they were forbidden, with the expiry they were given (circular queue)
+    private long[] queueKeys;
+    private int[] queueExpiries;
+    private int queueHead = 0;
+    private int queueSize = 0;
+
+    /** A memory for pairs forbidden for `tenure` iterations (it grows if more pairs are taboo at once). */
+    TabuMemory(int tenure) {
+        int capacity = Integer.highestOneBit(Math.max(8, 4 * (tenure + 2)) - 1) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        expiries = new int[capacity];
+        mask = capacity - 1;
+        queueKeys = new long[capacity / 2];
+        queueExpiries = new int[capacity / 2];
+    }
+
+    /** expiry[a][b] : the last iteration at which (a, b) is taboo, 0 if it was never forbidden (or forgotten). */
+    int expiry(int a, int b) {
+        long key = key(a, b);
+        for(int i = index(key) ; keys[i] != EMPTY ; i = (i + 1) & mask) {
+            if(keys[i] == key)
+                return expiries[i];
+        }
+        return 0;
+    }
+
+    /** expiry[a][b] = until */
+    void forbid(int a, int b, int until) {
+        long key = key(a, b);
+        int i = index(key);
+        while(keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if(keys[i] == EMPTY) {
+            if(2 * (size + 1) > keys.length) {
+                grow();
+                forbid(a, b, until);
+                return;
+            }
+            keys[i] = key;
+            size++;
+        }
+        expiries[i] = until;
+        enqueue(key, until);
+    }
+
+    /** Forgets the pairs that are not taboo at iteration k (nor at any later iteration). */
+    void expire(int k) {
+        while(queueSize > 0 && queueExpiries[queueHead] < k) {
+            long key = queueKeys[queueHead];
+            int expiry = queueExpiries[queueHead];
+            queueHead = (queueHead + 1) % queueKeys.length;
+            queueSize--;
+            // the pair may have been forbidden again since, it is then still in the queue with its new expiry
+            int i = index(key);
+            while(keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if(keys[i] == key && expiries[i] == expiry) {
+                remove(i);
+            }
+        }
+    }
+
+    /** Number of pairs stored. */
+    int size() {
+        return size;
+    }
+
+    private void enqueue(long key, int expiry) {
+        if(queueSize == queueKeys.length) {
+            long[] newKeys = new long[2 * queueKeys.length];
+            int[] newExpiries = new int[2 * queueKeys.length];
+            for(int i = 0 ; i < queueSize ; i++) {
+                newKeys[i] = queueKeys[(queueHead + i) % queueKeys.length];
+                newExpiries[i] = queueExpiries[(queueHead + i) % queueKeys.length];
+            }
+            queueKeys = newKeys;
+            queueExpiries = newExpiries;
+            queueHead = 0;
+        }
+        int tail = (queueHead + queueSize) % queueKeys.length;
+        queueKeys[tail] = key;
+        queueExpiries[tail] = expiry;
+        queueSize++;
+    }
+
+    /** Removes the entry in slot i, moving back the following entries of its probe sequence. */
+    private void remove(int i) {
+        int hole = i;
+        int j = (i + 1) & mask;
+        while(keys[j] != EMPTY) {
+            int home = index(keys[j]);
+            // the entry in j can fill the hole if its home slot is not in (hole, j]
+            if(((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                expiries[hole] = expiries[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldExpiries = expiries;
+        keys = new long[2 * oldKeys.length];
+        Arrays.fill(keys, EMPTY);
+        expiries = new int[2 * oldKeys.length];
+        mask = keys.length - 1;
+        for(int i = 0 ; i < oldKeys.length ; i++) {
+            if(oldKeys[i] != EMPTY) {
+                int j = index(oldKeys[i]);
+                while(keys[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                expiries[j] = oldExpiries[i];
+            }
+        }
+    }
+
+    private int index(long key) {
+        // mix the bits of both tasks (Murmur3 finalizer)
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private static long key(int a, int b) {
+        return ((long) a << 32) | b;
+    }
+}
@@ -0,0 +1,341 @@
+package jobshop.solvers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import jobshop.Instance;
+import jobshop.Metrics;
+import jobshop.Result;
+import jobshop.Schedule;
+import jobshop.Solver;
+import jobshop.Result.ExitCause;
+import jobshop.encodings.PackedResourceOrder;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import jobshop.solvers.GreedySolver.PriorityRule;
+import jobshop.solvers.DescentSolver.Swap;
+
+/** Taboo search with back jump tracking (TSAB) of Nowicki and Smutnicki, on the same N5 neighborhood
+ * (swaps at the ends of the critical blocks) as TabooSolver.
+ *
+ * Compared to TabooSolver:
+ *  - the taboo list holds the last `tenure` arcs (pairs of tasks) that were reversed, instead of a matrix over
+ *    all pairs of tasks. A move is taboo if it restores one of these arcs, unless it gives a new best solution.
+ *    When all moves are taboo, the best one is made anyway.
+ *  - each time a new best solution is found, it is stored in a list of elite solutions with its taboo list and
+ *    the moves that were not made from it. When the search stagnates (maxStagnation iterations without improving
+ *    the best solution) or cycles, it jumps back to the last elite solution and continues with its next best move.
+ *    The search stops when there is no elite solution left.
+ *  - a cycle is detected when the sequence of (makespan, move) repeats itself MAX_CYCLES times with a period of
+ *    at most MAX_PERIOD iterations.
+ *  - if the critical path contains no block, it is a single job and the solution is optimal.
+ */
+public class TsabSolver implements Solver {
+
+	static final int MAX_PERIOD = 50;
+	static final int MAX_CYCLES = 3;
+
+	private PriorityRule priorityRule;
+	private PriorityESTRule priorityESTRule;
+	// Number of reversed arcs kept in the taboo list
+	private int tenure;
+	// Number of iterations without improvement after which the search jumps back to an elite solution (0: only when cycling)
+	private int maxStagnation;
+	// Maximal number of elite solutions kept (the oldest ones are forgotten)
+	private int maxElite;
+	// Total number of iterations (0: no limit)
+	private int maxIter;
+
+	// 2 constructors: the default and one with the EST restriction
+	public TsabSolver(PriorityRule rule, int tenure, int maxStagnation, int maxElite, int maxIter) {
+		super();
+		this.priorityRule = rule;
+		this.priorityESTRule = null;
+		this.tenure = tenure;
+		this.maxStagnation = maxStagnation;
+		this.maxElite = maxElite;
+		this.maxIter = maxIter;
+	}
+
+	public TsabSolver(PriorityESTRule ruleEST, int tenure, int maxStagnation, int maxElite, int maxIter) {
+		super();
+		this.priorityESTRule = ruleEST;
+		this.priorityRule = null;
+		this.tenure = tenure;
+		this.maxStagnation = maxStagnation;
+		this.maxElite = maxElite;
+		this.maxIter = maxIter;
+	}
+
+	/** The last reversed arcs, in a circular buffer. Arc (a, b) means that task a must not be put before task b. */
+	static class TabuList {
+		private final long[] arcs;
+		private int next = 0;
+		private int size = 0;
+
+		TabuList(int capacity) {
+			this.arcs = new long[capacity];
+		}
+
+		private TabuList(TabuList other) {
+			this.arcs = other.arcs.clone();
+			this.next = other.next;
+			this.size = other.size;
+		}
+
+		void add(int a, int b) {
+			if(arcs.length == 0) {
+				return;
+			}
+			arcs[next] = key(a, b);
+			next = (next + 1) % arcs.length;
+			size = Math.min(size + 1, arcs.length);
+		}
+
+		boolean contains(int a, int b) {
+			long key = key(a, b);
+			for(int i = 0; i < size; i++) {
+				if(arcs[i] == key) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		TabuList copy() {
+			return new TabuList(this);
+		}
+
+		private static long key(int a, int b) {
+			return ((long) a << 32) | b;
+		}
+	}
+
+	/** A best solution with its taboo list, and the moves not yet made from it (best first). */
+	private static class Elite {
+		final int[] tasks;
+		final TabuList tabu;
+		final List<Swap> moves;
+
+		Elite(int[] tasks, TabuList tabu, List<Swap> moves) {
+			this.tasks = tasks;
+			this.tabu = tabu;
+			this.moves = moves;
+		}
+	}
+
+	// ************************************************************************************************************* //
+	// **************************************** TsabSolver: solve Method ******************************************* //
+	// ************************************************************************************************************* //
+
+    @Override
+    public Result solve(Instance instance, long deadline) {
+    	return solve(instance, deadline, null);
+    }
+
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement) {
+    	return solve(instance, deadline, onImprovement, Metrics.NONE);
+    }
+
+    /** Runs the search until the deadline, maxIter iterations, a proof of optimality or when there is no elite
+     * solution left to jump back to. Each improving solution is passed to onImprovement (if not null) when found. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics) {
+    	return solve(instance, deadline, onImprovement, metrics, ALONE);
+    }
+    
+    /** Same as above, also stopping when `shared` reaches the lower bound of the instance. */
+    @Override
+    public Result solve(Instance instance, long deadline, Consumer<Schedule> onImprovement, Metrics metrics,
+                        IntSupplier shared) {
+    	// Initial solution (SPT / LRPT / EST_SPT / EST_LRPT)
+    	GreedySolver greedy = priorityESTRule == null ? new GreedySolver(priorityRule) : new GreedySolver(priorityESTRule);
+    	Schedule initialSolution = greedy.solve(instance, deadline, null, metrics).schedule;
+    	if(onImprovement != null) {
+    		onImprovement.accept(initialSolution);
+    	}
+    	long start = metrics.startTimer();
+    	PackedResourceOrder current = new PackedResourceOrder(initialSolution);
+    	PackedResourceOrder best = current.copy();
+    	metrics.stopTimer(Metrics.Timer.COPY, start);
+    	int bestMakespan = initialSolution.makespan();
+
+    	SwapEvaluator evaluator = new SwapEvaluator(instance, SwapEvaluator.Mode.ESTIMATE);
+    	CriticalBlocks criticalBlocks = new CriticalBlocks(instance);
+    	TabuList tabu = new TabuList(this.tenure);
+    	Deque<Elite> elites = new ArrayDeque<>();
+
+    	List<Swap> moves = new ArrayList<>();
+    	int[] values = new int[0];
+    	// (value << 32 | index) of the neighbors, sorted
+    	long[] order = new long[0];
+    	// (makespan, move) of the last iterations, to detect cycles
+    	long[] history = new long[MAX_PERIOD * MAX_CYCLES];
+    	int historySize = 0;
+
+    	ExitCause exitCause = null;
+    	// No schedule can be shorter than the lower bound
+    	int lowerBound = instance.lowerBound().value();
+    	long k = 0;
+    	long lastImprovement = 0;
+    	while(exitCause == null && shared.getAsInt() > lowerBound && deadline > System.currentTimeMillis() && (this.maxIter <= 0 || k < this.maxIter)) {
+    		k++;
+    		metrics.count(Metrics.Counter.ITERATIONS);
+
+    		// ***************** 1. Exact makespan of the current solution, new best solution? ***************** //
+    		start = metrics.startTimer();
+    		evaluator.reset(current);
+    		evaluator.criticalBlocks(criticalBlocks);
+    		metrics.stopTimer(Metrics.Timer.CRITICAL_PATH, start);
+    		int makespan = evaluator.makespan();
+    		boolean improved = makespan < bestMakespan;
+    		if(improved) {
+    			bestMakespan = makespan;
+    			start = metrics.startTimer();
+    			current.copyInto(best);
+    			metrics.stopTimer(Metrics.Timer.COPY, start);
+    			lastImprovement = k;
+    			metrics.improvement(bestMakespan);
+    			if(onImprovement != null) {
+    				onImprovement.accept(best.toSchedule());
+    			}
+    		}
+    		// A critical path without block is a single job: no solution can be shorter
+    		if(criticalBlocks.size() == 0 || bestMakespan <= lowerBound) {
+    			exitCause = ExitCause.ProvedOptimal;
+    			break;
+    		}
+
+    		// ***************** 2. Neighbors, sorted by estimated makespan ***************** //
+    		start = metrics.startTimer();
+    		moves.clear();
+    		for(int b = 0; b < criticalBlocks.size(); b++) {
+    			moves.addAll(DescentSolver.swapsOf(criticalBlocks.block(b)));
+    		}
+    		metrics.stopTimer(Metrics.Timer.NEIGHBORHOOD, start);
+    		start = metrics.startTimer();
+    		if(values.length < moves.size()) {
+    			values = new int[moves.size()];
+    			order = new long[moves.size()];
+    		}
+    		for(int i = 0; i < moves.size(); i++) {
+    			values[i] = evaluator.evaluate(moves.get(i));
+    			// the estimate is a lower bound: a move that may improve the best solution is evaluated exactly
+    			if(values[i] < bestMakespan) {
+    				values[i] = evaluator.exact(moves.get(i));
+    			}
+    			order[i] = ((long) values[i] << 32) | i;
+    		}
+    		// equal neighbors stay in the order in which they were generated: the index breaks ties
+    		Arrays.sort(order, 0, moves.size());
+    		metrics.stopTimer(Metrics.Timer.EVALUATION, start);
+    		metrics.count(Metrics.Counter.EVALUATIONS, moves.size());
+
+    		// ***************** 3. Best move that is not taboo (or that gives a new best solution) ***************** //
+    		int chosen = -1;
+    		for(int i = 0; i < moves.size() && chosen < 0; i++) {
+    			int m = (int) order[i];
+    			if(values[m] < bestMakespan || !isTabu(current, tabu, moves.get(m))) {
+    				chosen = i;
+    			}
+    		}
+    		if(chosen < 0) {
+    			// all moves are taboo: make the best one anyway
+    			chosen = 0;
+    		}
+    		Swap move = moves.get((int) order[chosen]);
+
+    		// A new best solution (or the initial one) becomes an elite solution, with the moves not made from it
+    		if((improved || k == 1) && this.maxElite > 0) {
+    			List<Swap> others = new ArrayList<>(moves.size() - 1);
+    			for(int i = 0; i < moves.size(); i++) {
+    				if(i != chosen)
+    					others.add(moves.get((int) order[i]));
+    			}
+    			if(!others.isEmpty()) {
+    				if(elites.size() == this.maxElite) {
+    					elites.pollFirst();
+    				}
+    				elites.addLast(new Elite(current.tasks.clone(), tabu.copy(), others));
+    			}
+    		}
+
+    		// ***************** 4. Make the move ***************** //
+    		apply(current, tabu, move);
+    		metrics.count(Metrics.Counter.MOVES);
+    		metrics.trace(k, values[(int) order[chosen]], bestMakespan);
+
+    		// ***************** 5. Back jump when the search stagnates or cycles ***************** //
+    		if(improved) {
+    			historySize = 0;
+    		}
+    		// (makespan, arc) key: the arc is computed in long as it does not fit in an int for large instances
+    		long arc = (long) current.taskAt(move.machine, move.t1) * current.tasks.length + current.taskAt(move.machine, move.t2);
+    		history[historySize % history.length] = ((long) makespan << 32) ^ arc;
+    		historySize++;
+    		if((this.maxStagnation > 0 && k - lastImprovement >= this.maxStagnation) || isCycling(history, historySize)) {
+    			Elite elite = elites.peekLast();
+    			if(elite == null) {
+    				// nothing left to explore
+    				exitCause = ExitCause.Blocked;
+    			} else {
+    				Swap next = elite.moves.remove(0);
+    				if(elite.moves.isEmpty()) {
+    					elites.pollLast();
+    				}
+    				System.arraycopy(elite.tasks, 0, current.tasks, 0, current.tasks.length);
+    				tabu = elite.tabu.copy();
+    				apply(current, tabu, next);
+    				metrics.count(Metrics.Counter.MOVES);
+    				lastImprovement = k;
+    				historySize = 0;
+    			}
+    		}
+    	}
+    	if(exitCause == null) {
+    		// the deadline or the iteration limit was reached
+    		exitCause = deadline <= System.currentTimeMillis() ? ExitCause.Timeout : ExitCause.Blocked;
+    	}
+
+    	start = metrics.startTimer();
+    	Schedule bestSolution = best.toSchedule();
+    	metrics.stopTimer(Metrics.Timer.DECODE, start);
+    	metrics.count(Metrics.Counter.DECODES);
+    	return new Result(instance, bestSolution, exitCause, metrics.snapshot());
+    }
+
+    /** A move is taboo if it puts back before another a task that was moved after it. */
+    private static boolean isTabu(PackedResourceOrder order, TabuList tabu, Swap move) {
+    	int first = order.taskAt(move.machine, move.t1);
+    	int second = order.taskAt(move.machine, move.t2);
+    	// after the move, second is before first
+    	return tabu.contains(second, first);
+    }
+
+    /** Makes the move and forbids to undo it. */
+    private static void apply(PackedResourceOrder order, TabuList tabu, Swap move) {
+    	tabu.add(order.taskAt(move.machine, move.t1), order.taskAt(move.machine, move.t2));
+    	move.applyOn(order);
+    }
+
+    /** True if the last values of the history repeat MAX_CYCLES times with the same period. */
+    static boolean isCycling(long[] history, int historySize) {
+    	for(int period = 1; period <= MAX_PERIOD && period * MAX_CYCLES <= historySize; period++) {
+    		boolean periodic = true;
+    		for(int i = 0; i < period * (MAX_CYCLES - 1) && periodic; i++) {
+    			int last = historySize - 1 - i;
+    			periodic = history[last % history.length] == history[(last - period) % history.length];
+    		}
+    		if(periodic) {
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+    // ************************************************************************************************************* //
+}
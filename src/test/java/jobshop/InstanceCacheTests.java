@@ -0,0 +1,83 @@
+package jobshop;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+public class InstanceCacheTests {
+
+    private static boolean sameInstance(Instance a, Instance b) {
+        if(a.numJobs != b.numJobs || a.numTasks != b.numTasks)
+            return false;
+        for(int j = 0 ; j < a.numJobs ; j++) {
+            for(int t = 0 ; t < a.numTasks ; t++) {
+                if(a.machine(j, t) != b.machine(j, t) || a.duration(j, t) != b.duration(j, t))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void testParser() throws IOException {
+        // header line with a trailing comment
+        Instance instance = Instance.fromFile(Paths.get("instances/aaa1"));
+        assert instance.numJobs == 2 && instance.numTasks == 3;
+        assert instance.machine(1, 0) == 1 && instance.duration(1, 2) == 4;
+        assert instance.task_with_machine(1, 0) == 1;
+        assert instance.remainingTime(1, 1) == 6;
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        Path dir = Files.createTempDirectory("jobshop-cache");
+        for(String name : new String[] {"aaa1", "ft10", "la40", "ta80"}) {
+            Instance instance = Instance.fromFile(Paths.get("instances/" + name));
+            Path binary = dir.resolve(name + ".jspb");
+            InstanceCache.writeBinary(instance, binary);
+            Instance read = InstanceCache.readBinary(binary);
+            assert sameInstance(instance, read);
+            assert read.task_with_machine(0, read.machine(0, 1)) == 1;
+        }
+
+        // loading twice gives the same object, and the binary file is reused by another cache
+        InstanceCache cache = new InstanceCache(dir.resolve("cache"));
+        Instance first = cache.load(Paths.get("instances/ft10"));
+        assert cache.load(Paths.get("instances/ft10")) == first;
+        Instance other = new InstanceCache(dir.resolve("cache")).load(Paths.get("instances/ft10"));
+        assert other != first && sameInstance(first, other);
+    }
+
+    @Test
+    public void testInvalidCache() throws IOException {
+        Path dir = Files.createTempDirectory("jobshop-cache");
+        Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+
+        // a machine out of range is rejected as an invalid file, and the cache rebuilds it from the text file
+        InstanceCache cache = new InstanceCache(dir);
+        cache.load(Paths.get("instances/ft10"));
+        Path binary;
+        try(Stream<Path> files = Files.list(dir)) {
+            binary = files.filter(f -> f.toString().endsWith(".jspb")).findFirst().get();
+        }
+        byte[] bytes = Files.readAllBytes(binary);
+        ByteBuffer.wrap(bytes).putInt(4 * 4, 1000);
+        Files.write(binary, bytes);
+        try {
+            InstanceCache.readBinary(binary);
+            assert false;
+        } catch (IOException e) {
+            // expected
+        }
+        assert sameInstance(instance, new InstanceCache(dir).load(Paths.get("instances/ft10")));
+
+        // a cache directory that cannot be created does not prevent loading
+        Path file = Files.createTempFile("jobshop-cache", ".txt");
+        assert sameInstance(instance, new InstanceCache(file.resolve("cache")).load(Paths.get("instances/ft10")));
+    }
+}
@@ -0,0 +1,32 @@
+package jobshop;
+
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import jobshop.solvers.SwapEvaluator;
+import jobshop.solvers.TabooSolver;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class LowerBoundTests {
+
+    @Test
+    public void testBounds() throws IOException {
+        // 0..2 runs a (tail 1), 2..5 runs b preempting a (tail 10), 5..6 ends a: max(5 + 10, 6 + 1)
+        assert LowerBound.jackson(new int[] {0, 2}, new int[] {3, 3}, new int[] {1, 10}, 2) == 15;
+        // the machine is idle until the second release
+        assert LowerBound.jackson(new int[] {0, 10}, new int[] {2, 2}, new int[] {0, 0}, 2) == 12;
+
+        Instance instance = Instance.fromFile(Paths.get("instances/aaa1"));
+        LowerBound bound = instance.lowerBound();
+        assert bound == instance.lowerBound();
+        assert bound.jobBound == 8 && bound.value() <= 11;
+
+        // the bound of la01 is its optimal makespan: the search stops as soon as it finds it
+        Instance la01 = Instance.fromFile(Paths.get("instances/la01"));
+        assert la01.lowerBound().value() == BestKnownResult.of("la01");
+        Result result = new TabooSolver(PriorityESTRule.EST_LRPT, 10, 0, SwapEvaluator.Mode.ESTIMATE)
+                .solve(la01, System.currentTimeMillis() + 10000);
+        assert result.schedule.makespan() == 666 && result.cause == Result.ExitCause.ProvedOptimal : result.cause;
+    }
+}
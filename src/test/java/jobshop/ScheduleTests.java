@@ -0,0 +1,40 @@
+package jobshop;
+
+import jobshop.Schedule.Violation;
+import jobshop.encodings.Task;
+import jobshop.solvers.GreedySolver;
+import jobshop.solvers.GreedySolver.PriorityRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+public class ScheduleTests {
+
+    @Test
+    public void testViolations() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/aaa1"));
+
+        Schedule valid = new Schedule(instance, new int[][] {{0, 3, 9}, {0, 3, 5}});
+        assert valid.isValid();
+        assert valid.violations().isEmpty();
+
+        // (0,1) and (1,1) start before the end of their job predecessor, (1,1) also overlaps (0,0) on machine 0
+        Schedule invalid = new Schedule(instance, new int[][] {{0, 2, 9}, {0, 1, 5}});
+        assert !invalid.isValid();
+        List<Violation> violations = invalid.violations();
+        assert violations.size() == 3 : violations;
+        assert violations.get(0).kind == Violation.Kind.JobPrecedence && violations.get(0).second.equals(new Task(0, 1));
+        assert violations.get(1).kind == Violation.Kind.JobPrecedence && violations.get(1).second.equals(new Task(1, 1));
+        assert violations.get(2).kind == Violation.Kind.MachineOverlap
+                && violations.get(2).first.equals(new Task(0, 0)) && violations.get(2).second.equals(new Task(1, 1));
+
+        assert new Schedule(instance, new int[][] {{-1, 3, 9}, {0, 3, 5}}).violations().get(0).kind == Violation.Kind.NegativeStart;
+
+        // greedy schedules are valid on a larger instance
+        for(PriorityRule rule : PriorityRule.values()) {
+            assert new GreedySolver(rule).solve(Instance.fromFile(Paths.get("instances/ta51")), Long.MAX_VALUE).schedule.isValid();
+        }
+    }
+}
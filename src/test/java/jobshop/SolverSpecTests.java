@@ -0,0 +1,75 @@
+package jobshop;
+
+import jobshop.solvers.DescentSolver;
+import jobshop.solvers.GraspSolver;
+import jobshop.solvers.GreedySolver;
+import jobshop.solvers.PortfolioSolver;
+import jobshop.solvers.TabooSolver;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class SolverSpecTests {
+
+    @Test
+    public void testParse() {
+        assert SolverSpec.parse("Greedy-EST_LRPT") instanceof GreedySolver;
+        assert SolverSpec.parse("Descent-SPT") instanceof DescentSolver;
+        assert SolverSpec.parse("Taboo-EST_LRPT(10,1000)") instanceof TabooSolver;
+        assert SolverSpec.parse("Portfolio") instanceof PortfolioSolver;
+        assert SolverSpec.parse("taboo(rule=est_spt, tenure=8, iters=50, threads=2)") instanceof TabooSolver;
+        assert SolverSpec.parse("descent") instanceof DescentSolver;
+        assert SolverSpec.parse("grasp(rule=SPT, alpha=0.5, nbh=N7)") instanceof GraspSolver;
+        assert SolverSpec.parse("portfolio()") instanceof PortfolioSolver;
+        assert SolverSpec.parse("portfolio(taboo(rule=EST_SPT, tenure=8), grasp, descent(nbh=N7))") instanceof PortfolioSolver;
+
+        for(String invalid : new String[] {"foo", "taboo(rule=FOO)", "taboo(tenure=x)", "greedy(tenure=3)",
+                "taboo(tenure=1,tenure=2)", "descent(eval)", "grasp(alpha=2)", "taboo(nbh=N4)",
+                "portfolio(taboo(tenure=x))", "portfolio(taboo,,grasp)", "portfolio(taboo(tenure=8)", "portfolio(taboo))"}) {
+            try {
+                SolverSpec.parse(invalid);
+                assert false : invalid + " should not be accepted";
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testUsage() {
+        // the help message lists valid specifications
+        for(String usage : SolverSpec.USAGE) {
+            if(!usage.startsWith("where")) {
+                assert SolverSpec.parse(usage) != null : usage;
+            }
+        }
+    }
+
+    @Test
+    public void testExpand() {
+        assert SolverSpec.expand("Taboo-EST_LRPT(10,1000)").equals(Arrays.asList("Taboo-EST_LRPT(10,1000)"));
+        assert SolverSpec.expand("random").equals(Arrays.asList("random"));
+        // the members of a portfolio are not expanded
+        assert SolverSpec.expand("portfolio(taboo(tenure=6|8), grasp)").equals(Arrays.asList("portfolio(taboo(tenure=6|8), grasp)"));
+
+        List<String> grid = SolverSpec.expand("taboo(rule=SPT|EST_LRPT, tenure=6..10:2, iters=100)");
+        assert grid.equals(Arrays.asList(
+                "taboo(rule=SPT,tenure=6,iters=100)", "taboo(rule=SPT,tenure=8,iters=100)", "taboo(rule=SPT,tenure=10,iters=100)",
+                "taboo(rule=EST_LRPT,tenure=6,iters=100)", "taboo(rule=EST_LRPT,tenure=8,iters=100)", "taboo(rule=EST_LRPT,tenure=10,iters=100)"));
+        for(String spec : grid) {
+            assert SolverSpec.parse(spec) instanceof TabooSolver;
+        }
+
+        // ranges reaching Integer.MAX_VALUE end, grids that are too large are rejected
+        assert SolverSpec.expand("taboo(iters=1..2147483647:1000000000)").size() == 3;
+        for(String spec : new String[] {"taboo(iters=1..1000000)", "taboo(tenure=1..200, iters=1..200)"}) {
+            try {
+                SolverSpec.expand(spec);
+                assert false : spec;
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
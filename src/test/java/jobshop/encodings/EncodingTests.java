@@ -1,10 +1,14 @@
 package jobshop.encodings;
 
+import jobshop.Encoding;
 import jobshop.Instance;
+import jobshop.Metrics;
 import jobshop.Result;
 import jobshop.Schedule;
 import jobshop.Solver;
 import jobshop.solvers.BasicSolver;
+import jobshop.solvers.GreedySolver;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -31,6 +35,7 @@ public class EncodingTests {
         System.out.println(sched);
         assert sched.isValid();
         assert sched.makespan() == 12;
+        assert enc.makespan() == 12;
 
 
 
@@ -70,6 +75,76 @@ public class EncodingTests {
 
         assert result.schedule.isValid();
         assert result.schedule.makespan() == sched.makespan(); // should have the same makespan
+
+        // solvers without improvement callback accept a null one
+        assert solver.solve(instance, System.currentTimeMillis() + 10, null, Metrics.NONE).schedule.isValid();
+    }
+
+    @Test
+    public void testPackedResourceOrder() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/aaa1"));
+
+        ResourceOrder order = new ResourceOrder(instance);
+        order.tasksByMachine[0][0] = new Task(0,0);
+        order.tasksByMachine[0][1] = new Task(1,1);
+        order.tasksByMachine[1][0] = new Task(1,0);
+        order.tasksByMachine[1][1] = new Task(0,1);
+        order.tasksByMachine[2][0] = new Task(0,2);
+        order.tasksByMachine[2][1] = new Task(1,2);
+
+        PackedResourceOrder packed = new PackedResourceOrder(order);
+        Schedule sched = packed.toSchedule();
+        assert sched.isValid();
+        assert sched.makespan() == order.toSchedule().makespan();
+        assert packed.toResourceOrder().toSchedule().makespan() == sched.makespan();
+        // makespan-only and in-place decoding agree with the schedule
+        int[] startTimes = new int[instance.numJobs * instance.numTasks];
+        assert packed.makespan() == sched.makespan() && order.makespan() == sched.makespan();
+        assert packed.decodeInto(startTimes) == sched.makespan();
+        for(int j = 0 ; j < instance.numJobs ; j++) {
+            for(int t = 0 ; t < instance.numTasks ; t++) {
+                assert startTimes[j * instance.numTasks + t] == sched.startTime(j, t);
+            }
+        }
+
+        // copies are independent from the original
+        PackedResourceOrder copy = new PackedResourceOrder(instance);
+        packed.copyInto(copy);
+        copy.swap(0, 0, 1);
+        assert packed.toSchedule().makespan() == sched.makespan();
+
+        // (1,1) before (0,0) on machine 0 is still feasible
+        assert copy.toSchedule() != null && copy.toSchedule().isValid();
+        // but also putting (0,1) before (1,0) on machine 1 creates a cycle
+        copy.swap(1, 0, 1);
+        assert copy.toSchedule() == null;
+        assert copy.makespan() == Encoding.INFEASIBLE && copy.decodeInto(startTimes) == Encoding.INFEASIBLE;
+        assert copy.findCycle().size() == 4;
+        assert copy.findCycle().equals(copy.toResourceOrder().findCycle());
+        assert packed.findCycle().isEmpty();
+    }
+
+    @Test
+    public void testFromSchedule() throws IOException {
+        // aaa1 is sorted by counting, ta01 by comparison
+        for(String name : new String[] {"aaa1", "ft10", "ta01"}) {
+            Instance instance = Instance.fromFile(Paths.get("instances/" + name));
+            Schedule sched = new GreedySolver(PriorityESTRule.EST_LRPT).solve(instance, Long.MAX_VALUE).schedule;
+
+            // the greedy schedule is semi-active: decoding its order gives it back
+            Schedule fromJobs = new JobNumbers(sched).toSchedule();
+            Schedule fromOrder = new ResourceOrder(sched).toSchedule();
+            PackedResourceOrder packed = new PackedResourceOrder(sched);
+            int[] startTimes = new int[instance.numJobs * instance.numTasks];
+            assert packed.decodeInto(startTimes) == sched.makespan();
+            for(int j = 0 ; j < instance.numJobs ; j++) {
+                for(int t = 0 ; t < instance.numTasks ; t++) {
+                    assert fromJobs.startTime(j, t) == sched.startTime(j, t) : name;
+                    assert fromOrder.startTime(j, t) == sched.startTime(j, t) : name;
+                    assert startTimes[j * instance.numTasks + t] == sched.startTime(j, t) : name;
+                }
+            }
+        }
     }
 
 }
@@ -0,0 +1,62 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Metrics;
+import jobshop.MetricsRecorder;
+import jobshop.Result;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import jobshop.solvers.GreedySolver.PriorityRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class GraspSolverTests {
+
+    @Test
+    public void testReproducible() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+        long deadline = System.currentTimeMillis() + 60000;
+        MetricsRecorder metrics = new MetricsRecorder();
+        Result first = new GraspSolver(PriorityESTRule.EST_LRPT, 0.2, 20, 1, 3, Neighborhood.N5)
+                .solve(instance, deadline, null, metrics);
+        Result second = new GraspSolver(PriorityESTRule.EST_LRPT, 0.2, 20, 1, 3, Neighborhood.N5).solve(instance, deadline);
+
+        assert first.schedule.isValid();
+        assert first.schedule.makespan() == second.schedule.makespan();
+        // the 20 starts run out long before the deadline
+        assert first.cause == Result.ExitCause.Blocked : first.cause;
+        assert first.metrics.count(Metrics.Counter.ITERATIONS) == 20;
+    }
+
+    /** The starts are shared by the workers: all of them are made, and no more. */
+    @Test
+    public void testThreads() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+        long deadline = System.currentTimeMillis() + 60000;
+        MetricsRecorder metrics = new MetricsRecorder();
+        Result result = new GraspSolver(PriorityESTRule.EST_LRPT, 0.2, 40, 4, 3, Neighborhood.N5)
+                .solve(instance, deadline, null, metrics);
+        Result greedy = new GreedySolver(PriorityESTRule.EST_LRPT).solve(instance, deadline);
+
+        assert result.schedule.isValid();
+        assert result.schedule.makespan() <= greedy.schedule.makespan()
+                : result.schedule.makespan() + " > " + greedy.schedule.makespan();
+        assert result.cause == Result.ExitCause.Blocked : result.cause;
+        assert result.metrics.count(Metrics.Counter.ITERATIONS) == 40;
+    }
+
+    @Test
+    public void testAlpha() {
+        for(double alpha : new double[] {-0.1, 1.5}) {
+            try {
+                new GraspSolver(PriorityRule.SPT, alpha);
+                assert false : alpha;
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        new GraspSolver(PriorityRule.SPT, 0);
+        new GraspSolver(PriorityRule.SPT, 1);
+    }
+}
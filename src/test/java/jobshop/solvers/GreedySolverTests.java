@@ -0,0 +1,66 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.encodings.ResourceOrder;
+import jobshop.encodings.Task;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import jobshop.solvers.GreedySolver.PriorityRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class GreedySolverTests {
+
+    /** The heaps of GreedySolver must choose the same tasks as the rules scanning the list of achievable tasks. */
+    @Test
+    public void testSameAsListScan() throws IOException {
+        for(String name : new String[] {"ft10", "la20", "ta01", "ta51"}) {
+            Instance instance = Instance.fromFile(Paths.get("instances/" + name));
+            for(PriorityRule rule : PriorityRule.values()) {
+                ResourceOrder order = new ResourceOrder(new GreedySolver(rule).solve(instance, Long.MAX_VALUE).schedule);
+                assert sameOrder(order, listScan(instance, rule, null)) : name + " " + rule;
+            }
+            for(PriorityESTRule rule : PriorityESTRule.values()) {
+                ResourceOrder order = new ResourceOrder(new GreedySolver(rule).solve(instance, Long.MAX_VALUE).schedule);
+                assert sameOrder(order, listScan(instance, null, rule)) : name + " " + rule;
+            }
+        }
+    }
+
+    /** The greedy construction as it was written before the heaps. */
+    private static ResourceOrder listScan(Instance instance, PriorityRule rule, PriorityESTRule ruleEST) {
+        int[] nextStartDateJobs = new int[instance.numJobs];
+        int[] nextStartDateMachines = new int[instance.numMachines];
+        ResourceOrder order = new ResourceOrder(instance);
+        ArrayList<Task> achievableTasks = new ArrayList<>();
+        for(int j = 0 ; j < instance.numJobs ; j++) {
+            achievableTasks.add(new Task(j, 0));
+        }
+        while(!achievableTasks.isEmpty()) {
+            Task task = ruleEST == null
+                    ? rule.getTaskByRule(achievableTasks, instance)
+                    : ruleEST.getTaskByESTRule(achievableTasks, instance, nextStartDateJobs, nextStartDateMachines);
+            achievableTasks.remove(task);
+            int machine = instance.machine(task);
+            int end = Math.max(nextStartDateJobs[task.job], nextStartDateMachines[machine]) + instance.duration(task);
+            nextStartDateJobs[task.job] = end;
+            nextStartDateMachines[machine] = end;
+            if(task.task < instance.numTasks - 1) {
+                achievableTasks.add(new Task(task.job, task.task + 1));
+            }
+            order.tasksByMachine[machine][order.nextFreeSlot[machine]++] = task;
+        }
+        return order;
+    }
+
+    private static boolean sameOrder(ResourceOrder a, ResourceOrder b) {
+        for(int m = 0 ; m < a.instance.numMachines ; m++) {
+            if(!Arrays.equals(a.tasksByMachine[m], b.tasksByMachine[m]))
+                return false;
+        }
+        return true;
+    }
+}
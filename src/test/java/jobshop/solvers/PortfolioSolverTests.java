@@ -0,0 +1,56 @@
+package jobshop.solvers;
+
+import jobshop.ConvergenceTrace;
+import jobshop.Instance;
+import jobshop.MetricsRecorder;
+import jobshop.Result;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import jobshop.solvers.GreedySolver.PriorityRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class PortfolioSolverTests {
+
+    /** Once a member reaches the lower bound, the other members stop: the portfolio does not wait for the deadline. */
+    @Test
+    public void testStopsAtLowerBound() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/la01"));
+        PortfolioSolver portfolio = new PortfolioSolver(
+                new TabooSolver(PriorityESTRule.EST_LRPT, 10, 5000),
+                new TabooSolver(PriorityESTRule.EST_SPT, 10, 5000),
+                new DescentSolver(PriorityRule.SPT),
+                new RandomSolver(),
+                new GraspSolver(PriorityRule.SPT, 1));
+
+        long start = System.currentTimeMillis();
+        Result result = portfolio.solve(instance, start + 20000);
+        long runtime = System.currentTimeMillis() - start;
+
+        assert result.schedule.isValid();
+        assert result.schedule.makespan() == instance.lowerBound().value();
+        assert result.cause == Result.ExitCause.ProvedOptimal : result.cause;
+        assert runtime < 5000 : runtime;
+    }
+
+    /** The trace of a portfolio is the one of its global best, not the interleaved traces of the members. */
+    @Test
+    public void testTraceOfGlobalBest() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+        PortfolioSolver portfolio = new PortfolioSolver(
+                new TabooSolver(PriorityESTRule.EST_LRPT, 10, 1000),
+                new DescentSolver(PriorityRule.SPT));
+        MetricsRecorder metrics = new MetricsRecorder(1000);
+
+        Result result = portfolio.solve(instance, System.currentTimeMillis() + 1000, null, metrics);
+
+        ConvergenceTrace trace = metrics.snapshot().trace();
+        assert trace.size() > 0;
+        for(int i = 1 ; i < trace.size() ; i++) {
+            assert trace.bestMakespan(i) < trace.bestMakespan(i - 1) : i;
+            assert trace.currentMakespan(i) == trace.bestMakespan(i) : i;
+        }
+        assert trace.bestMakespan(trace.size() - 1) == result.schedule.makespan();
+    }
+}
@@ -0,0 +1,55 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Metrics;
+import jobshop.MetricsRecorder;
+import jobshop.Result;
+import jobshop.encodings.JobNumbers;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class RandomSolverTests {
+
+    @Test
+    public void testReproducible() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+        long deadline = System.currentTimeMillis() + 60000;
+        Result first = new RandomSolver(1, 7, 5000).solve(instance, deadline);
+        Result second = new RandomSolver(1, 7, 5000).solve(instance, deadline);
+
+        assert first.schedule.isValid();
+        assert first.schedule.makespan() == second.schedule.makespan();
+        // the samples run out long before the deadline
+        assert first.cause == Result.ExitCause.Blocked : first.cause;
+    }
+
+    /** The samples are split between the workers: all of them are drawn, and no more. */
+    @Test
+    public void testThreads() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ta01"));
+        // the jobs in order, the first sample of the solver
+        JobNumbers identity = new JobNumbers(instance);
+        for(int j = 0 ; j < instance.numJobs ; j++) {
+            for(int t = 0 ; t < instance.numTasks ; t++) {
+                identity.jobs[identity.nextToSet++] = j;
+            }
+        }
+
+        // not a multiple of the number of threads
+        long samples = 20003;
+        MetricsRecorder metrics = new MetricsRecorder();
+        Result result = new RandomSolver(4, 0, samples).solve(instance, System.currentTimeMillis() + 60000, null, metrics);
+        assert result.schedule.isValid();
+        assert result.cause == Result.ExitCause.Blocked : result.cause;
+        assert result.metrics.count(Metrics.Counter.ITERATIONS) == samples : result.metrics.count(Metrics.Counter.ITERATIONS);
+        // among 20000 random orders, at least one is better than the jobs in order
+        assert result.schedule.makespan() < identity.makespan() : result.schedule.makespan() + " >= " + identity.makespan();
+
+        // more threads than samples
+        metrics = new MetricsRecorder();
+        result = new RandomSolver(4, 0, 3).solve(instance, System.currentTimeMillis() + 60000, null, metrics);
+        assert result.metrics.count(Metrics.Counter.ITERATIONS) == 3;
+    }
+}
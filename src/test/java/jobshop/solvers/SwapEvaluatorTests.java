@@ -0,0 +1,89 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Schedule;
+import jobshop.encodings.ResourceOrder;
+import jobshop.solvers.DescentSolver.Block;
+import jobshop.solvers.DescentSolver.Insertion;
+import jobshop.solvers.DescentSolver.Swap;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class SwapEvaluatorTests {
+
+    @Test
+    public void testExactMatchesDecoding() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+        ResourceOrder order = new ResourceOrder(new GreedySolver(PriorityESTRule.EST_LRPT).solve(instance, Long.MAX_VALUE).schedule);
+
+        SwapEvaluator evaluator = new SwapEvaluator(instance, SwapEvaluator.Mode.EXACT);
+        evaluator.reset(order);
+        assert evaluator.makespan() == order.toSchedule().makespan();
+
+        // every swap of two tasks on a machine, feasible or not
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int t1 = 0 ; t1 < instance.numJobs ; t1++) {
+                for(int t2 = t1 + 1 ; t2 < instance.numJobs ; t2++) {
+                    Swap swap = new Swap(m, t1, t2);
+                    ResourceOrder neighbor = order.copy();
+                    swap.applyOn(neighbor);
+                    Schedule schedule = neighbor.toSchedule();
+
+                    int expected = schedule == null ? SwapEvaluator.INFEASIBLE : schedule.makespan();
+                    assert evaluator.evaluate(swap) == expected;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEstimateIsLowerBound() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/la20"));
+        ResourceOrder order = new ResourceOrder(new GreedySolver(PriorityESTRule.EST_SPT).solve(instance, Long.MAX_VALUE).schedule);
+
+        SwapEvaluator evaluator = new SwapEvaluator(instance, SwapEvaluator.Mode.ESTIMATE);
+        evaluator.reset(order);
+
+        DescentSolver descent = new DescentSolver(PriorityESTRule.EST_SPT);
+        for(Block block : descent.blocksOfCriticalPath(order)) {
+            for(Swap swap : descent.neighbors(block)) {
+                int exact = evaluator.exact(swap);
+                assert evaluator.evaluate(swap) <= exact;
+                // pruned evaluation is exact as soon as the makespan is below the bound
+                assert evaluator.evaluate(swap, exact + 1) == exact;
+                assert evaluator.evaluate(swap, exact) >= exact;
+            }
+        }
+    }
+
+    @Test
+    public void testInsertions() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+        ResourceOrder order = new ResourceOrder(new GreedySolver(PriorityESTRule.EST_LRPT).solve(instance, Long.MAX_VALUE).schedule);
+
+        SwapEvaluator evaluator = new SwapEvaluator(instance, SwapEvaluator.Mode.EXACT);
+        evaluator.reset(order);
+
+        // every insertion on a machine: the evaluation matches the decoding, and the feasibility test never
+        // accepts an insertion that creates a cycle
+        for(int m = 0 ; m < instance.numMachines ; m++) {
+            for(int from = 0 ; from < instance.numJobs ; from++) {
+                for(int to = 0 ; to < instance.numJobs ; to++) {
+                    if(from == to)
+                        continue;
+                    Insertion insertion = new Insertion(m, from, to);
+                    ResourceOrder neighbor = order.copy();
+                    insertion.applyOn(neighbor);
+                    Schedule schedule = neighbor.toSchedule();
+
+                    int expected = schedule == null ? SwapEvaluator.INFEASIBLE : schedule.makespan();
+                    assert evaluator.evaluate(insertion) == expected;
+                    assert schedule != null || !evaluator.canInsert(m, from, to);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package jobshop.solvers;
+
+import jobshop.ConvergenceTrace;
+import jobshop.Instance;
+import jobshop.Metrics;
+import jobshop.MetricsRecorder;
+import jobshop.Result;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class TabooSolverTests {
+
+    /** The neighborhood evaluated by several threads must give the same trajectory as the sequential evaluation. */
+    @Test
+    public void testSameTrajectoryWithThreads() throws IOException {
+        for(String name : new String[] {"ft10", "la20"}) {
+            Instance instance = Instance.fromFile(Paths.get("instances/" + name));
+            for(SwapEvaluator.Mode mode : SwapEvaluator.Mode.values()) {
+                Result sequential = run(instance, mode, 1);
+                Result parallel = run(instance, mode, 4);
+                String what = name + " " + mode;
+                assert sequential.schedule.isValid() && parallel.schedule.isValid() : what;
+                assert sequential.schedule.makespan() == parallel.schedule.makespan() : what;
+                for(Metrics.Counter counter : new Metrics.Counter[] {
+                        Metrics.Counter.ITERATIONS, Metrics.Counter.MOVES, Metrics.Counter.EVALUATIONS}) {
+                    assert sequential.metrics.count(counter) == parallel.metrics.count(counter) : what + " " + counter;
+                }
+                // same current and best makespans at every iteration
+                ConvergenceTrace a = sequential.metrics.trace();
+                ConvergenceTrace b = parallel.metrics.trace();
+                assert a.size() == b.size() : what;
+                for(int i = 0 ; i < a.size() ; i++) {
+                    assert a.currentMakespan(i) == b.currentMakespan(i) && a.bestMakespan(i) == b.bestMakespan(i) : what + " " + i;
+                }
+            }
+        }
+    }
+
+    private static Result run(Instance instance, SwapEvaluator.Mode mode, int threads) {
+        return new TabooSolver(PriorityESTRule.EST_LRPT, 10, 300, mode, threads)
+                .solve(instance, System.currentTimeMillis() + 60000, null, new MetricsRecorder(1000));
+    }
+}
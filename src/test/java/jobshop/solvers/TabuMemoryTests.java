@@ -0,0 +1,37 @@
+package jobshop.solvers;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TabuMemoryTests {
+
+    /** The memory must answer exactly as the dense matrix it replaces in TabooSolver. */
+    @Test
+    public void testSameAsDenseMatrix() {
+        Random random = new Random(0);
+        int numTasks = 60;
+        for(int tenure : new int[] {0, 1, 5, 20}) {
+            int[][] dense = new int[numTasks][numTasks];
+            TabuMemory memory = new TabuMemory(tenure);
+            for(int k = 1 ; k <= 5000 ; k++) {
+                memory.expire(k);
+                // forbid a few pairs, some of them repeatedly
+                int forbidden = random.nextInt(3);
+                for(int f = 0 ; f < forbidden ; f++) {
+                    int a = random.nextInt(numTasks / 6);
+                    int b = random.nextInt(numTasks);
+                    dense[a][b] = tenure + k;
+                    memory.forbid(a, b, tenure + k);
+                }
+                for(int q = 0 ; q < 20 ; q++) {
+                    int a = random.nextInt(numTasks / 6);
+                    int b = random.nextInt(numTasks);
+                    assert (dense[a][b] < k) == (memory.expiry(a, b) < k);
+                }
+                // only the pairs that are still taboo are kept
+                assert memory.size() <= 2 * (tenure + 1);
+            }
+        }
+    }
+}
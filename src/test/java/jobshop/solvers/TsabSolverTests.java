@@ -0,0 +1,87 @@
+package jobshop.solvers;
+
+import jobshop.Instance;
+import jobshop.Result;
+import jobshop.solvers.GreedySolver.PriorityESTRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class TsabSolverTests {
+
+    /** With an iteration limit, the search does not depend on the time: two runs give the same makespan. */
+    @Test
+    public void testReproducible() throws IOException {
+        for(String name : new String[] {"ft10", "la20"}) {
+            Instance instance = Instance.fromFile(Paths.get("instances/" + name));
+            Result first = new TsabSolver(PriorityESTRule.EST_LRPT, 8, 200, 5, 500).solve(instance, Long.MAX_VALUE);
+            Result second = new TsabSolver(PriorityESTRule.EST_LRPT, 8, 200, 5, 500).solve(instance, Long.MAX_VALUE);
+            assert first.schedule.isValid() : name;
+            assert first.schedule.makespan() == second.schedule.makespan() : name;
+            assert first.schedule.makespan() >= instance.lowerBound().value() : name;
+        }
+    }
+
+    @Test
+    public void testProvedOptimal() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/la01"));
+        Result result = new TsabSolver(PriorityESTRule.EST_LRPT, 8, 2000, 5, 100000)
+                .solve(instance, System.currentTimeMillis() + 20000);
+        assert result.schedule.isValid();
+        assert result.schedule.makespan() == instance.lowerBound().value();
+        assert result.cause == Result.ExitCause.ProvedOptimal : result.cause;
+    }
+
+    /** Without elite solutions to jump back to, the search stops at the first stagnation. */
+    @Test
+    public void testBlockedWithoutElite() throws IOException {
+        Instance instance = Instance.fromFile(Paths.get("instances/ft10"));
+        Result result = new TsabSolver(PriorityESTRule.EST_LRPT, 8, 50, 0, 100000)
+                .solve(instance, System.currentTimeMillis() + 20000);
+        assert result.schedule.isValid();
+        assert result.cause == Result.ExitCause.Blocked : result.cause;
+    }
+
+    @Test
+    public void testCycling() {
+        long[] history = new long[TsabSolver.MAX_PERIOD * TsabSolver.MAX_CYCLES];
+        // period 2, repeated MAX_CYCLES times, written over the end of the circular buffer
+        int size = history.length + 7;
+        for(int i = 0 ; i < size ; i++) {
+            history[i % history.length] = i;
+        }
+        assert !TsabSolver.isCycling(history, size);
+        for(int i = size - 2 * TsabSolver.MAX_CYCLES ; i < size ; i++) {
+            history[i % history.length] = i % 2;
+        }
+        assert TsabSolver.isCycling(history, size);
+        // one repetition short
+        history[(size - 2 * TsabSolver.MAX_CYCLES) % history.length] = -1;
+        assert !TsabSolver.isCycling(history, size);
+        // not enough history yet
+        assert !TsabSolver.isCycling(history, 2 * TsabSolver.MAX_CYCLES - 1);
+    }
+
+    @Test
+    public void testTabuListWrapsAround() {
+        TsabSolver.TabuList tabu = new TsabSolver.TabuList(3);
+        tabu.add(1, 2);
+        tabu.add(3, 4);
+        tabu.add(5, 6);
+        assert tabu.contains(1, 2) && tabu.contains(3, 4) && tabu.contains(5, 6);
+        assert !tabu.contains(2, 1);
+        // the oldest arc is overwritten
+        tabu.add(7, 8);
+        assert !tabu.contains(1, 2);
+        assert tabu.contains(3, 4) && tabu.contains(5, 6) && tabu.contains(7, 8);
+        // a copy is independent
+        TsabSolver.TabuList copy = tabu.copy();
+        tabu.add(9, 10);
+        assert !tabu.contains(3, 4) && copy.contains(3, 4) && !copy.contains(9, 10);
+        // an empty list forbids nothing
+        TsabSolver.TabuList empty = new TsabSolver.TabuList(0);
+        empty.add(1, 2);
+        assert !empty.contains(1, 2);
+    }
+}